@@ -8,22 +8,38 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.util.Random;
+
 @Profile("dev")
 @Component
 public class DataLoader implements CommandLineRunner {
 
+    // Centros urbanos (lat, lon); cada tienda cae a unos pocos kilómetros de uno de ellos
+    private static final double[][] CIUDADES = {
+            {-33.4489, -70.6693}, // Santiago
+            {-33.0472, -71.6127}, // Valparaíso
+            {-36.8270, -73.0503}, // Concepción
+            {-29.9027, -71.2519}, // La Serena
+            {-23.6509, -70.3975}, // Antofagasta
+            {-39.8142, -73.2459}, // Valdivia
+            {-53.1638, -70.9171}  // Punta Arenas
+    };
+    private static final double DISPERSION_GRADOS = 0.05;
+
     @Autowired
     private TiendaService tiendaService;
 
     @Override
     public void run(String... args) throws Exception {
 
-        if (!tiendaService.findAll().isEmpty()) {
+        // Basta con saber si hay al menos una; findAll leía la tabla entera en cada arranque
+        if (!tiendaService.findPage(null, 1).isEmpty()) {
             System.out.println("Tiendas ya existentes, no se crearán nuevas.");
             return;
         }
 
-        Faker faker = new Faker();
+        Random random = new Random();
+        Faker faker = new Faker(random);
 
         System.out.println("DataLoader: Cargando datos de prueba...");
 
@@ -31,9 +47,16 @@ public class DataLoader implements CommandLineRunner {
             Tienda tienda = new Tienda();
             tienda.setNombre("Tienda " + faker.company().name());
             tienda.setDireccion(faker.address().streetAddress());
+            ubicar(tienda, random);
             tiendaService.save(tienda);
         }
 
         System.out.println("DataLoader: 5 tiendas generadas OK.");
     }
+
+    static void ubicar(Tienda tienda, Random random) {
+        double[] ciudad = CIUDADES[random.nextInt(CIUDADES.length)];
+        tienda.setLatitud(ciudad[0] + (random.nextDouble() * 2 - 1) * DISPERSION_GRADOS);
+        tienda.setLongitud(ciudad[1] + (random.nextDouble() * 2 - 1) * DISPERSION_GRADOS);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.tienda.vm_tienda;
+
+import com.tienda.vm_tienda.model.Tienda;
+import net.datafaker.Faker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Genera datos masivos para pruebas de carga: ./mvnw spring-boot:run -Dspring-boot.run.profiles=seed
+ * -Dspring-boot.run.arguments=--tienda.semilla.filas=10000000
+ *
+ * Escribe directo por JDBC (sin pasar por TiendaService), así que la caché, el índice de
+ * búsqueda y el feed de cambios de una API en ejecución no se enteran: reiniciarla después.
+ */
+@Profile("seed")
+@Component
+public class SembradorTiendas implements CommandLineRunner {
+
+    // modificada_en y vigente los pone la entidad en cada escritura JPA; aquí van a mano para que
+    // /sync devuelva las filas sembradas y cuenten para la unicidad entre vigentes.
+    private static final String INSERT = "INSERT INTO tienda (id_tienda, nombre, direccion, latitud, longitud, version, "
+            + "modificada_en, vigente) VALUES (?, ?, ?, ?, ?, 0, CURRENT_TIMESTAMP, TRUE)";
+    // Mismo esquema "pooled" que Hibernate: cada nextval reserva el bloque [valor - 49, valor].
+    private static final String RESERVAR_BLOQUES = "SELECT nextval('tienda_seq') FROM generate_series(1, ?)";
+    private static final int TAMANO_BLOQUE = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${tienda.semilla.filas:100000}")
+    private long filas;
+
+    @Value("${tienda.semilla.paralelismo:0}")
+    private int paralelismo;
+
+    @Value("${tienda.semilla.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @Value("${tienda.semilla.semilla:42}")
+    private long semilla;
+
+    @Override
+    public void run(String... args) throws Exception {
+        int hilos = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+        int lotes = (int) ((filas + tamanoLote - 1) / tamanoLote);
+        long avisoCada = Math.max(tamanoLote, filas / 10);
+        AtomicLong insertadas = new AtomicLong();
+
+        System.out.println("SembradorTiendas: " + filas + " tiendas en " + lotes + " lotes de " + tamanoLote
+                + " con " + hilos + " hilos (semilla " + semilla + ")...");
+        long inicio = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        try {
+            pool.submit(() -> IntStream.range(0, lotes).parallel().forEach(lote -> {
+                int cantidad = (int) Math.min(tamanoLote, filas - (long) lote * tamanoLote);
+                List<Tienda> tiendas = generarLote(semilla, lote, (long) lote * tamanoLote, cantidad);
+                transactionTemplate.executeWithoutResult(status -> insertar(tiendas));
+                long total = insertadas.addAndGet(cantidad);
+                if (total / avisoCada != (total - cantidad) / avisoCada) {
+                    System.out.println("SembradorTiendas: " + total + " / " + filas + " (" + filasPorSegundo(total, inicio) + " filas/s)");
+                }
+            })).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.println("SembradorTiendas: " + insertadas.get() + " tiendas en "
+                + (System.nanoTime() - inicio) / 1_000_000 + " ms, " + filasPorSegundo(insertadas.get(), inicio) + " filas/s.");
+    }
+
+    /**
+     * Las tiendas de un lote dependen solo de la semilla y del número de lote, no del hilo que
+     * lo procesa, así que dos ejecuciones con la misma configuración generan los mismos datos.
+     * El número de fila en el nombre garantiza la unicidad de (nombre, direccion).
+     */
+    static List<Tienda> generarLote(long semilla, int lote, long desde, int cantidad) {
+        Random random = new Random(semilla * 1_000_003L + lote);
+        Faker faker = new Faker(random);
+        List<Tienda> tiendas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Tienda tienda = new Tienda();
+            tienda.setNombre("Tienda " + faker.company().name() + " " + (desde + i + 1));
+            tienda.setDireccion(faker.address().streetAddress());
+            DataLoader.ubicar(tienda, random);
+            tiendas.add(tienda);
+        }
+        return tiendas;
+    }
+
+    private void insertar(List<Tienda> tiendas) {
+        List<Integer> ids = reservarIds(tiendas.size());
+        for (int i = 0; i < tiendas.size(); i++) {
+            tiendas.get(i).setIdTienda(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(INSERT, tiendas, tiendas.size(), (ps, tienda) -> {
+            ps.setInt(1, tienda.getIdTienda());
+            ps.setString(2, tienda.getNombre());
+            ps.setString(3, tienda.getDireccion());
+            ps.setDouble(4, tienda.getLatitud());
+            ps.setDouble(5, tienda.getLongitud());
+        });
+    }
+
+    private List<Integer> reservarIds(int cantidad) {
+        List<Integer> ids = new ArrayList<>(cantidad + TAMANO_BLOQUE);
+        while (ids.size() < cantidad) {
+            int bloques = (cantidad - ids.size() + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE;
+            for (Long valor : jdbcTemplate.queryForList(RESERVAR_BLOQUES, Long.class, bloques)) {
+                // Igual que Hibernate, se descarta el bloque incompleto del valor inicial.
+                if (valor < TAMANO_BLOQUE) {
+                    continue;
+                }
+                for (int id = (int) valor.longValue() - TAMANO_BLOQUE + 1; id <= valor; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static long filasPorSegundo(long filas, long inicioNanos) {
+        long nanos = Math.max(1, System.nanoTime() - inicioNanos);
+        return filas * 1_000_000_000L / nanos;
+    }
+}
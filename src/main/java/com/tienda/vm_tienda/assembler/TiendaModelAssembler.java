@@ -6,20 +6,45 @@ import com.tienda.vm_tienda.controller.TiendaController;
 import com.tienda.vm_tienda.model.Tienda;
 
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 @Component
 public class TiendaModelAssembler implements RepresentationModelAssembler<Tienda, EntityModel<Tienda>> {
 
+    private static final String ATRIBUTO_BASE = TiendaModelAssembler.class.getName() + ".base";
+
     @Override
     public EntityModel<Tienda> toModel(Tienda tienda) {
+        return toModel(tienda, baseUri());
+    }
+
+    public EntityModel<Tienda> toModel(Tienda tienda, String base) {
+        String self = base + "/" + tienda.getIdTienda();
         return EntityModel.of(
             tienda,
-            linkTo(methodOn(TiendaController.class).getTiendaById(tienda.getIdTienda())).withSelfRel(),
-            linkTo(methodOn(TiendaController.class).getAllTiendas()).withRel("tiendas"),
-            linkTo(methodOn(TiendaController.class).actualizarTienda(tienda.getIdTienda(), null)).withRel("actualizar"),
-            linkTo(methodOn(TiendaController.class).eliminarTienda(tienda.getIdTienda())).withRel("eliminar")
+            Link.of(self).withSelfRel(),
+            Link.of(base).withRel("tiendas"),
+            Link.of(self).withRel("actualizar"),
+            Link.of(self).withRel("eliminar")
         );
     }
-}
\ No newline at end of file
+
+    // La URI base del controlador se resuelve una sola vez por request y se guarda
+    // como atributo; cada entidad solo concatena su ID.
+    public String baseUri() {
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (atributos == null) {
+            return TiendaController.RUTA;
+        }
+        String base = (String) atributos.getAttribute(ATRIBUTO_BASE, RequestAttributes.SCOPE_REQUEST);
+        if (base == null) {
+            base = linkTo(TiendaController.class).toUri().toString();
+            atributos.setAttribute(ATRIBUTO_BASE, base, RequestAttributes.SCOPE_REQUEST);
+        }
+        return base;
+    }
+}
@@ -0,0 +1,21 @@
+package com.tienda.vm_tienda.config;
+
+import com.tienda.vm_tienda.controller.TiendaController;
+import com.tienda.vm_tienda.service.TiendaService;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// En el perfil prod todo se inicializa de forma perezosa (OpenAPI, actuator, conversores...)
+// salvo la ruta de las peticiones a tiendas, para que la primera no pague el arranque de Hibernate.
+@Configuration
+@Profile("prod")
+public class ArranqueRapidoConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter rutaTiendasAnticipada() {
+        return LazyInitializationExcludeFilter.forBeanTypes(TiendaController.class, TiendaService.class);
+    }
+}
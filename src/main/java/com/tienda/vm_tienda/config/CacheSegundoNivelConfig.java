@@ -0,0 +1,58 @@
+package com.tienda.vm_tienda.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+/**
+ * Caché de segundo nivel de Hibernate sobre JCache (Caffeine, en memoria local). Las regiones se
+ * crean aquí para poder dimensionarlas desde application.properties; Hibernate falla al arrancar
+ * si pide una región que no existe en vez de crearla sin límites.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    public static final String REGION_TIENDA = "tienda";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerSegundoNivel(
+            @Value("${tienda.cache.l2.tienda.maximo:10000}") long maximoTiendas,
+            @Value("${tienda.cache.l2.tienda.ttl:10m}") Duration ttlTiendas,
+            @Value("${tienda.cache.l2.estadisticas:true}") boolean estadisticas) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        crearRegion(cacheManager, REGION_TIENDA, maximoTiendas, ttlTiendas, estadisticas);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelHibernate(CacheManager cacheManagerSegundoNivel) {
+        return propiedades -> {
+            propiedades.put(ConfigSettings.CACHE_MANAGER, cacheManagerSegundoNivel);
+            propiedades.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static void crearRegion(CacheManager cacheManager, String region, long maximo, Duration ttl,
+            boolean estadisticas) {
+        if (cacheManager.getCache(region) != null) {
+            return;
+        }
+        CaffeineConfiguration<Object, Object> configuracion = new CaffeineConfiguration<>();
+        configuracion.setMaximumSize(OptionalLong.of(maximo));
+        configuracion.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttl.toMillis())));
+        configuracion.setStatisticsEnabled(estadisticas);
+        cacheManager.createCache(region, configuracion);
+    }
+}
@@ -0,0 +1,49 @@
+package com.tienda.vm_tienda.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Formato binario para clientes internos: con Accept: application/cbor las mismas
+// respuestas se codifican en CBOR y sin los enlaces HAL, que son la mayor parte del peso.
+@Configuration
+public class FormatosConfig implements WebMvcConfigurer {
+
+    public static final String CBOR = MediaType.APPLICATION_CBOR_VALUE;
+
+    // Spring MVC ya registra su propio conversor CBOR cuando jackson-dataformat-cbor está en el
+    // classpath, y el primero que acepta application/cbor es el que escribe. Se reemplaza en su
+    // mismo lugar: ponerlo antes que el de JSON haría que Accept: */* respondiera en CBOR.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        MappingJackson2CborHttpMessageConverter propio = new MappingJackson2CborHttpMessageConverter(cborObjectMapper());
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2CborHttpMessageConverter) {
+                converters.set(i, propio);
+                converters.subList(i + 1, converters.size())
+                        .removeIf(MappingJackson2CborHttpMessageConverter.class::isInstance);
+                return;
+            }
+        }
+        converters.add(propio);
+    }
+
+    public static ObjectMapper cborObjectMapper() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.cbor().build();
+        mapper.addMixIn(RepresentationModel.class, SinEnlaces.class);
+        return mapper;
+    }
+
+    @JsonIgnoreProperties("links")
+    private abstract static class SinEnlaces {
+    }
+}
@@ -0,0 +1,25 @@
+package com.tienda.vm_tienda.config;
+
+import com.tienda.vm_tienda.controller.TiendaController;
+import com.tienda.vm_tienda.filter.LimiteConcurrenciaFilter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("virtual")
+public class HilosVirtualesConfig {
+
+    @Bean
+    public FilterRegistrationBean<LimiteConcurrenciaFilter> limiteConcurrenciaFilter(
+            @Value("${spring.datasource.hikari.maximum-pool-size}") int tamanoPool,
+            @Value("${tienda.db.espera-maxima-ms:2000}") long esperaMaximaMs) {
+        FilterRegistrationBean<LimiteConcurrenciaFilter> registro =
+                new FilterRegistrationBean<>(new LimiteConcurrenciaFilter(tamanoPool, esperaMaximaMs));
+        registro.addUrlPatterns(TiendaController.RUTA, TiendaController.RUTA + "/*");
+        return registro;
+    }
+}
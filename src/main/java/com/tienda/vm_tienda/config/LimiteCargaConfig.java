@@ -0,0 +1,57 @@
+package com.tienda.vm_tienda.config;
+
+import com.tienda.vm_tienda.controller.TiendaController;
+import com.tienda.vm_tienda.filter.LimiteAdaptativoFilter;
+import com.tienda.vm_tienda.filter.LimiteTasaFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.Set;
+
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "tienda.limite.habilitado", matchIfMissing = true)
+public class LimiteCargaConfig {
+
+    @Bean
+    public FilterRegistrationBean<LimiteTasaFilter> limiteTasaFilter(
+            MeterRegistry registry,
+            @Value("${tienda.limite.tasa.lectura.por-segundo:50}") double lecturaPorSegundo,
+            @Value("${tienda.limite.tasa.lectura.rafaga:100}") int lecturaRafaga,
+            @Value("${tienda.limite.tasa.coleccion.por-segundo:2}") double coleccionPorSegundo,
+            @Value("${tienda.limite.tasa.coleccion.rafaga:5}") int coleccionRafaga,
+            @Value("${tienda.limite.tasa.escritura.por-segundo:10}") double escrituraPorSegundo,
+            @Value("${tienda.limite.tasa.escritura.rafaga:20}") int escrituraRafaga,
+            @Value("${tienda.limite.tasa.api-keys:}") Set<String> apiKeys) {
+        FilterRegistrationBean<LimiteTasaFilter> registro = new FilterRegistrationBean<>(new LimiteTasaFilter(
+                new LimiteTasaFilter.Tasa(lecturaPorSegundo, lecturaRafaga),
+                new LimiteTasaFilter.Tasa(coleccionPorSegundo, coleccionRafaga),
+                new LimiteTasaFilter.Tasa(escrituraPorSegundo, escrituraRafaga),
+                apiKeys, registry));
+        registro.addUrlPatterns(TiendaController.RUTA, TiendaController.RUTA + "/*");
+        registro.setOrder(1);
+        return registro;
+    }
+
+    // Va después del de tasa: lo que ya se rechazó por cliente no ocupa cupo de concurrencia
+    @Bean
+    public FilterRegistrationBean<LimiteAdaptativoFilter> limiteAdaptativoFilter(
+            MeterRegistry registry,
+            @Value("${tienda.limite.concurrencia.inicial:20}") int inicial,
+            @Value("${tienda.limite.concurrencia.minima:2}") int minima,
+            @Value("${tienda.limite.concurrencia.maxima:200}") int maxima,
+            @Value("${tienda.limite.latencia-objetivo-ms:250}") long latenciaObjetivoMs) {
+        FilterRegistrationBean<LimiteAdaptativoFilter> registro = new FilterRegistrationBean<>(
+                new LimiteAdaptativoFilter(inicial, minima, maxima, latenciaObjetivoMs, registry));
+        registro.addUrlPatterns(TiendaController.RUTA, TiendaController.RUTA + "/*");
+        registro.setOrder(2);
+        return registro;
+    }
+}
@@ -0,0 +1,103 @@
+package com.tienda.vm_tienda.config;
+
+import com.tienda.vm_tienda.datasource.ReplicasLectura;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+/**
+ * Separa lecturas y escrituras: las transacciones readOnly toman la conexión de una réplica y el
+ * resto de la primaria. El proxy perezoso retrasa pedir la conexión física hasta la primera
+ * sentencia, cuando ya se sabe si la transacción es de solo lectura. Cada lado tiene su pool:
+ * la primaria con spring.datasource.hikari.* y cada réplica con tienda.replicas.hikari.*.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "tienda.replicas.habilitado", havingValue = "true")
+public class ReplicasLecturaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimaria(DataSourceProperties propiedades) {
+        HikariDataSource primaria = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primaria.setPoolName("primaria");
+        return primaria;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicasLectura replicasLectura(
+            HikariDataSource dataSourcePrimaria,
+            DataSourceProperties propiedades,
+            Environment entorno,
+            MeterRegistry registry,
+            @Value("${tienda.replicas.urls}") List<String> urls,
+            @Value("${tienda.replicas.username:${spring.datasource.username:}}") String usuario,
+            @Value("${tienda.replicas.password:${spring.datasource.password:}}") String clave,
+            @Value("${tienda.replicas.retraso-maximo:5s}") Duration retrasoMaximo,
+            @Value("${tienda.replicas.intervalo-verificacion:2s}") Duration intervalo,
+            @Value("${tienda.replicas.consulta-retraso:}") String consultaRetraso) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(propiedades.determineDriverClassName())
+                    .url(url.trim())
+                    .username(usuario)
+                    .password(clave)
+                    .build();
+            Binder.get(entorno).bind("tienda.replicas.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            // No es un bean, así que sus métricas hikaricp.* se registran aquí
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicasLectura(dataSourcePrimaria, replicas, retrasoMaximo,
+                consultaRetraso.isBlank() ? ReplicasLectura.CONSULTA_RETRASO_POSTGRES : consultaRetraso,
+                intervalo, registry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource dataSourcePrimaria, ReplicasLectura replicasLectura) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(dataSourcePrimaria);
+        proxy.setReadOnlyDataSource(replicasLectura);
+        return proxy;
+    }
+
+    // Con open-in-view la sesión vive toda la petición: si retuviera la conexión, una escritura
+    // posterior a una lectura en la misma petición iría por la conexión de la réplica.
+    @Bean
+    public HibernatePropertiesCustomizer conexionPorTransaccion() {
+        return propiedades -> propiedades.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
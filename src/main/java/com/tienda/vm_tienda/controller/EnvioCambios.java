@@ -0,0 +1,43 @@
+package com.tienda.vm_tienda.controller;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hilos que envían el feed de cambios a los suscriptores SSE. Cada suscriptor ocupa como mucho una
+ * tarea; con los hilos y la cola llenos la tarea se rechaza y {@link SuscripcionCambios} corta a ese
+ * suscriptor en lugar de abrir otro hilo. No se expone como bean Executor para no desplazar al
+ * applicationTaskExecutor que Spring Boot usa en las peticiones asíncronas.
+ */
+@Component
+@Profile("!reactive")
+class EnvioCambios implements DisposableBean {
+
+    private final ThreadPoolTaskExecutor hilos = new ThreadPoolTaskExecutor();
+
+    EnvioCambios(@Value("${tienda.cambios.envio.hilos:16}") int tamano,
+                 @Value("${tienda.cambios.envio.cola:1000}") int cola) {
+        hilos.setThreadNamePrefix("tienda-cambios-");
+        hilos.setDaemon(true);
+        hilos.setCorePoolSize(tamano);
+        hilos.setMaxPoolSize(tamano);
+        hilos.setAllowCoreThreadTimeOut(true);
+        hilos.setQueueCapacity(cola);
+        hilos.initialize();
+    }
+
+    /** @throws RejectedExecutionException si no quedan hilos ni hueco en la cola */
+    void ejecutar(Runnable tarea) {
+        hilos.execute(tarea);
+    }
+
+    @Override
+    public void destroy() {
+        hilos.shutdown();
+    }
+}
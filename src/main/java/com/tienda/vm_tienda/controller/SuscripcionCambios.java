@@ -0,0 +1,98 @@
+package com.tienda.vm_tienda.controller;
+
+import com.tienda.vm_tienda.dto.CambioTienda;
+import com.tienda.vm_tienda.dto.LoteCambios;
+import com.tienda.vm_tienda.service.TiendaCambios;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Un cliente SSE del feed de cambios. No guarda una cola propia: cada vez que se publica un cambio
+ * programa (a lo sumo una vez) una tarea que lee del buffer desde su cursor y envía. Si el cliente
+ * es más lento que las escrituras y el buffer lo adelanta, recibe el evento "resync" y se cierra;
+ * si el pool de envío está saturado, se cierra sin más y el cliente reconecta.
+ */
+class SuscripcionCambios {
+
+    private static final int TAMANO_LOTE = 100;
+
+    private final TiendaCambios cambios;
+    private final SseEmitter emitter;
+    private final Executor envio;
+    private final AtomicBoolean programada = new AtomicBoolean();
+    private volatile long cursor;
+    private volatile boolean cerrada;
+    private Runnable cancelar = () -> { };
+
+    SuscripcionCambios(TiendaCambios cambios, SseEmitter emitter, Executor envio, long desde) {
+        this.cambios = cambios;
+        this.emitter = emitter;
+        this.envio = envio;
+        this.cursor = desde;
+    }
+
+    void iniciar() {
+        emitter.onCompletion(this::cerrar);
+        emitter.onTimeout(this::cerrar);
+        emitter.onError(ex -> cerrar());
+        cancelar = cambios.suscribir(this::programar);
+        programar();
+    }
+
+    private void programar() {
+        if (!cerrada && programada.compareAndSet(false, true)) {
+            try {
+                envio.execute(this::enviarPendientes);
+            } catch (RejectedExecutionException ex) {
+                // Sin hilos libres no se espera en el hilo que publicó el cambio: el cliente
+                // reconecta con Last-Event-ID y sigue desde donde quedó (o recibe "resync").
+                cerrar();
+                emitter.complete();
+            }
+        }
+    }
+
+    private void enviarPendientes() {
+        try {
+            while (!cerrada) {
+                LoteCambios lote = cambios.leerDesde(cursor, TAMANO_LOTE);
+                if (lote.resincronizar()) {
+                    emitter.send(SseEmitter.event().name("resync").data(lote.ultimaSecuencia()));
+                    emitter.complete();
+                    cerrar();
+                    return;
+                }
+                if (lote.cambios().isEmpty()) {
+                    break;
+                }
+                for (CambioTienda cambio : lote.cambios()) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(cambio.secuencia()))
+                            .name(cambio.tipo().name())
+                            .data(cambio, MediaType.APPLICATION_JSON));
+                    cursor = cambio.secuencia();
+                }
+            }
+        } catch (IOException | IllegalStateException ex) {
+            cerrar();
+            return;
+        } finally {
+            programada.set(false);
+        }
+        // Un cambio publicado entre la última lectura y liberar la marca no debe quedar esperando.
+        if (cambios.ultimaSecuencia() > cursor) {
+            programar();
+        }
+    }
+
+    private void cerrar() {
+        cerrada = true;
+        cancelar.run();
+    }
+}
@@ -1,7 +1,29 @@
 package com.tienda.vm_tienda.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.tienda.vm_tienda.assembler.TiendaModelAssembler;
+import com.tienda.vm_tienda.config.FormatosConfig;
+import com.tienda.vm_tienda.dto.EstadoEscritura;
+import com.tienda.vm_tienda.dto.LoteCambios;
+import com.tienda.vm_tienda.dto.LoteSincronizacion;
+import com.tienda.vm_tienda.dto.ProgresoImportacion;
+import com.tienda.vm_tienda.dto.ResultadoLote;
+import com.tienda.vm_tienda.dto.TiendaCercana;
+import com.tienda.vm_tienda.dto.TiendaResumen;
 import com.tienda.vm_tienda.model.Tienda;
+import com.tienda.vm_tienda.service.EscrituraDiferida;
+import com.tienda.vm_tienda.service.TiendaCambios;
+import com.tienda.vm_tienda.service.TiendaIndiceGeografico;
 import com.tienda.vm_tienda.service.TiendaService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,76 +32,430 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 
 @RestController
-@RequestMapping("/api/v1/tiendas")
+@Profile("!reactive")
+@RequestMapping(TiendaController.RUTA)
 @Tag(name = "Tienda", description = "API para gestionar tiendas.")
 public class TiendaController {
 
+    public static final String RUTA = "/api/v1/tiendas";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV_TIPO = "text/csv";
+    private static final CsvMapper CSV = CsvMapper.builder()
+            .enable(JsonGenerator.Feature.IGNORE_UNKNOWN)
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private static final CsvSchema ESQUEMA_CSV = CsvSchema.builder()
+            .addNumberColumn("idTienda")
+            .addColumn("nombre")
+            .addColumn("direccion")
+            .addNumberColumn("latitud")
+            .addNumberColumn("longitud")
+            .addNumberColumn("version")
+            .build()
+            .withHeader();
+    private static final Set<String> CAMPOS_RESUMEN = new LinkedHashSet<>(List.of("idTienda", "nombre", "direccion"));
+    private static final long TIEMPO_MAXIMO_SSE_MS = 30 * 60 * 1000L;
+    private static final int ESPERA_MAXIMA_S = 60;
+    private static final double RADIO_MAXIMO_M = 200_000;
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String SUFIJO_CBOR = "-cbor";
+
     @Autowired
     private TiendaService tiendaService;
 
     @Autowired
     private TiendaModelAssembler assembler;
 
-    @Operation(summary = "Listar todas las tiendas", description = "Obtiene una lista de todas las tiendas disponibles.")
-    @ApiResponse(responseCode = "200", description = "Lista devuelta correctamente")
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TiendaCambios cambios;
+
+    @Autowired
+    private EscrituraDiferida escrituraDiferida;
+
+    // Un hilo como máximo por suscriptor SSE con envíos pendientes; los clientes al día no ocupan ninguno.
+    @Autowired
+    private EnvioCambios envioCambios;
+
+    @Operation(summary = "Listar todas las tiendas", description = "Obtiene una lista de todas las tiendas disponibles. "
+            + "Con Accept: application/cbor se devuelve en CBOR y sin enlaces. "
+            + "Con 'after' y/o 'limit' devuelve una página ordenada por ID a partir del ID indicado.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lista devuelta correctamente"),
+        @ApiResponse(responseCode = "304", description = "La lista no cambió desde el ETag indicado")
+    })
     @GetMapping
-    public ResponseEntity<CollectionModel<EntityModel<Tienda>>> getAllTiendas() {
-        List<EntityModel<Tienda>> tiendas = tiendaService.findAll().stream()
+    public ResponseEntity<CollectionModel<EntityModel<Tienda>>> getAllTiendas(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = "\"tiendas-" + tiendaService.versionColeccion() + "-" + after + "-" + limit + formato() + "\"";
+        if (coincideEtag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        if (after == null && limit == null) {
+            List<EntityModel<Tienda>> tiendas = tiendaService.findAll().stream()
+                    .map(assembler::toModel)
+                    .collect(Collectors.toList());
+
+            return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(
+                    CollectionModel.of(
+                            tiendas,
+                            linkTo(methodOn(TiendaController.class).getAllTiendas(null, null, null)).withSelfRel()
+                    )
+            );
+        }
+
+        List<Tienda> pagina = tiendaService.findPage(after, limit);
+        List<EntityModel<Tienda>> tiendas = pagina.stream()
                 .map(assembler::toModel)
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(
-                CollectionModel.of(
-                        tiendas,
-                        linkTo(methodOn(TiendaController.class).getAllTiendas()).withSelfRel()
-                )
+        CollectionModel<EntityModel<Tienda>> modelo = CollectionModel.of(
+                tiendas,
+                linkTo(methodOn(TiendaController.class).getAllTiendas(after, limit, null)).withSelfRel()
         );
+        if (pagina.size() == TiendaService.tamanoPagina(limit)) {
+            Integer ultimo = pagina.get(pagina.size() - 1).getIdTienda();
+            modelo.add(linkTo(methodOn(TiendaController.class).getAllTiendas(ultimo, limit, null)).withRel("next"));
+        }
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(modelo);
+    }
+
+    @Operation(summary = "Listar tiendas resumidas", description = "Lista compacta para selectores y clientes móviles: "
+            + "un arreglo JSON sin enlaces HAL con los campos pedidos en 'fields' (idTienda, nombre, direccion; "
+            + "por defecto idTienda,nombre). Con 'after' y/o 'limit' pagina por ID y el enlace a la página siguiente "
+            + "va en la cabecera Link.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lista devuelta correctamente"),
+        @ApiResponse(responseCode = "304", description = "La lista no cambió desde el ETag indicado"),
+        @ApiResponse(responseCode = "400", description = "Campo no soportado en 'fields'")
+    })
+    @GetMapping(value = "/summary", produces = {MediaType.APPLICATION_JSON_VALUE, FormatosConfig.CBOR})
+    public ResponseEntity<List<TiendaResumen>> getResumenTiendas(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "idTienda,nombre") Set<String> fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!CAMPOS_RESUMEN.containsAll(fields)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Campos soportados en 'fields': " + String.join(",", CAMPOS_RESUMEN));
+        }
+        boolean conId = fields.contains("idTienda");
+        boolean conNombre = fields.contains("nombre");
+        boolean conDireccion = fields.contains("direccion");
+        String etag = "\"resumen-" + tiendaService.versionColeccion() + "-" + after + "-" + limit
+                + "-" + (conId ? "i" : "") + (conNombre ? "n" : "") + (conDireccion ? "d" : "") + formato() + "\"";
+        if (coincideEtag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        List<TiendaResumen> resumenes = tiendaService.findResumenes(after, limit, conDireccion);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT);
+        if ((after != null || limit != null) && resumenes.size() == TiendaService.tamanoPagina(limit)) {
+            Integer ultimo = resumenes.get(resumenes.size() - 1).idTienda();
+            respuesta.header(HttpHeaders.LINK, "<" + linkTo(methodOn(TiendaController.class)
+                    .getResumenTiendas(ultimo, limit, fields, null)).toUri() + ">; rel=\"next\"");
+        }
+        if (!conId || !conNombre) {
+            resumenes = resumenes.stream()
+                    .map(r -> new TiendaResumen(conId ? r.idTienda() : null, conNombre ? r.nombre() : null, r.direccion()))
+                    .collect(Collectors.toList());
+        }
+        return respuesta.body(resumenes);
+    }
+
+    @Operation(summary = "Listar tiendas en streaming", description = "Emite todas las tiendas como NDJSON leyendo directamente desde un cursor, sin cargar la tabla en memoria.")
+    @ApiResponse(responseCode = "200", description = "Flujo NDJSON de tiendas")
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamTiendas() {
+        ObjectWriter writer = objectMapper.writerFor(Tienda.class);
+        StreamingResponseBody body = out -> tiendaService.streamAll(tienda -> {
+            try {
+                out.write(writer.writeValueAsBytes(tienda));
+                out.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    @Operation(summary = "Exportar tiendas", description = "Exporta el catálogo completo como CSV (con cabecera) o NDJSON, "
+            + "escribiendo cada fila a medida que se lee del cursor.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Archivo de exportación"),
+        @ApiResponse(responseCode = "400", description = "Formato no soportado")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarTiendas(@RequestParam(defaultValue = "csv") String format) {
+        if (format.equalsIgnoreCase("ndjson")) {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=tiendas.ndjson")
+                    .contentType(MediaType.parseMediaType(NDJSON))
+                    .body(streamTiendas().getBody());
+        }
+        if (!format.equalsIgnoreCase("csv")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato no soportado: " + format);
+        }
+
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter filas = CSV.writerFor(Tienda.class).with(ESQUEMA_CSV).writeValues(out)) {
+                tiendaService.streamAll(tienda -> {
+                    try {
+                        filas.write(tienda);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=tiendas.csv")
+                .contentType(MediaType.parseMediaType(CSV_TIPO))
+                .body(body);
+    }
+
+    @Operation(summary = "Importar tiendas", description = "Importa un archivo CSV (con cabecera nombre,direccion) o NDJSON leyéndolo "
+            + "de forma incremental y creando las tiendas en lotes transaccionales. Responde un NDJSON con el avance de cada lote "
+            + "y las filas rechazadas; las filas duplicadas o sin nombre no detienen la importación.")
+    @ApiResponse(responseCode = "200", description = "Flujo NDJSON con el avance por lote")
+    @PostMapping(value = "/import", consumes = {CSV_TIPO, NDJSON}, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> importarTiendas(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType tipo, InputStream cuerpo) {
+        ObjectReader lector = tipo.isCompatibleWith(MediaType.parseMediaType(CSV_TIPO))
+                ? CSV.readerFor(Tienda.class).with(CsvSchema.emptySchema().withHeader())
+                : objectMapper.readerFor(Tienda.class);
+        ObjectWriter writer = objectMapper.writerFor(ProgresoImportacion.class);
+
+        StreamingResponseBody body = out -> {
+            ProgresoImportacion[] ultimo = new ProgresoImportacion[1];
+            try (MappingIterator<Tienda> tiendas = lector.readValues(cuerpo)) {
+                tiendaService.importar(tiendas, progreso -> {
+                    ultimo[0] = progreso;
+                    try {
+                        out.write(writer.writeValueAsBytes(progreso));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (RuntimeException | JsonProcessingException ex) {
+                ProgresoImportacion previo = ultimo[0];
+                out.write(writer.writeValueAsBytes(new ProgresoImportacion(
+                        previo == null ? 0 : previo.lote(),
+                        previo == null ? 0 : previo.procesadas(),
+                        previo == null ? 0 : previo.creadas(),
+                        List.of(),
+                        "Importación interrumpida: " + ex.getMessage())));
+                out.write('\n');
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    @Operation(summary = "Buscar tiendas", description = "Busca por prefijo o subcadena en nombre y dirección, sin distinguir mayúsculas ni tildes. "
+            + "Los resultados se ordenan por relevancia: primero coincidencias en el nombre, luego en la dirección.")
+    @ApiResponse(responseCode = "200", description = "Página de resultados")
+    @GetMapping("/search")
+    public ResponseEntity<PagedModel<EntityModel<Tienda>>> buscarTiendas(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        Page<Tienda> resultados = tiendaService.buscar(q, page, size);
+        List<EntityModel<Tienda>> tiendas = resultados.getContent().stream()
+                .map(assembler::toModel)
+                .collect(Collectors.toList());
+
+        PagedModel<EntityModel<Tienda>> modelo = PagedModel.of(tiendas, new PagedModel.PageMetadata(
+                resultados.getSize(), resultados.getNumber(), resultados.getTotalElements(), resultados.getTotalPages()),
+                linkTo(methodOn(TiendaController.class).buscarTiendas(q, page, size)).withSelfRel());
+        if (resultados.hasNext()) {
+            modelo.add(linkTo(methodOn(TiendaController.class).buscarTiendas(q, page + 1, size)).withRel("next"));
+        }
+        return ResponseEntity.ok(modelo);
+    }
+
+    @Operation(summary = "Tiendas cercanas", description = "Devuelve las tiendas con coordenadas más cercanas al punto "
+            + "(lat, lon) dentro de 'radius' metros (por defecto 5000, máximo 200000), ordenadas por distancia.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Tiendas ordenadas de la más cercana a la más lejana"),
+        @ApiResponse(responseCode = "400", description = "Coordenadas o radio fuera de rango")
+    })
+    @GetMapping(value = "/near", produces = {MediaType.APPLICATION_JSON_VALUE, FormatosConfig.CBOR})
+    public ResponseEntity<List<TiendaCercana>> getTiendasCercanas(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5000") double radius,
+            @RequestParam(required = false) Integer limit) {
+        if (!TiendaIndiceGeografico.coordenadasValidas(lat, lon)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Coordenadas fuera de rango: lat [-90, 90], lon [-180, 180]");
+        }
+        if (!(radius > 0 && radius <= RADIO_MAXIMO_M)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El radio debe estar entre 0 y " + (long) RADIO_MAXIMO_M + " metros");
+        }
+        return ResponseEntity.ok(tiendaService.cercanas(lat, lon, radius, limit));
+    }
+
+    @Operation(summary = "Sincronización incremental", description = "Devuelve las tiendas creadas, modificadas o "
+            + "eliminadas después del cursor (since, after), en orden de modificación. Las eliminadas vienen con "
+            + "'eliminadaEn'. Sin 'since' empieza desde el principio; se sigue con el 'since' y 'after' de la respuesta.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lote de cambios y cursor siguiente"),
+        @ApiResponse(responseCode = "400", description = "Fecha 'since' inválida (formato ISO-8601)")
+    })
+    @GetMapping(value = "/sync", produces = {MediaType.APPLICATION_JSON_VALUE, FormatosConfig.CBOR})
+    public ResponseEntity<LoteSincronizacion> sincronizarTiendas(
+            @RequestParam(required = false) Instant since,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(tiendaService.sincronizar(since, after, limit));
+    }
+
+    @Operation(summary = "Feed de cambios (SSE)", description = "Emite como Server-Sent Events los cambios posteriores a "
+            + "'since' (o a Last-Event-ID al reconectar). El id de cada evento es su secuencia. Si el cliente queda fuera del "
+            + "buffer recibe el evento 'resync' con la última secuencia y debe volver a leer el listado completo.")
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirCambios(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long ultimoEvento) {
+        long desde = ultimoEvento != null ? ultimoEvento : since != null ? since : cambios.ultimaSecuencia();
+        SseEmitter emitter = new SseEmitter(TIEMPO_MAXIMO_SSE_MS);
+        new SuscripcionCambios(cambios, emitter, envioCambios::ejecutar, desde).iniciar();
+        return emitter;
+    }
+
+    @Operation(summary = "Feed de cambios (long-poll)", description = "Devuelve los cambios posteriores a 'since'. Si no hay "
+            + "ninguno espera hasta 'wait' segundos a que llegue alguno antes de responder con un lote vacío.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lote de cambios, posiblemente vacío"),
+        @ApiResponse(responseCode = "410", description = "'since' ya no está en el buffer; hay que resincronizar")
+    })
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<LoteCambios>> leerCambios(
+            @RequestParam long since,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "25") int wait) {
+        int maximo = Math.max(1, Math.min(limit, TiendaService.LIMITE_MAXIMO));
+        long esperaMs = Math.max(0, Math.min(wait, ESPERA_MAXIMA_S)) * 1000L;
+        DeferredResult<ResponseEntity<LoteCambios>> resultado =
+                new DeferredResult<>(esperaMs, () -> respuestaCambios(cambios.leerDesde(since, maximo)));
+
+        LoteCambios lote = cambios.leerDesde(since, maximo);
+        if (!lote.cambios().isEmpty() || lote.resincronizar() || esperaMs == 0) {
+            resultado.setResult(respuestaCambios(lote));
+            return resultado;
+        }
+
+        Runnable cancelar = cambios.suscribir(() -> resultado.setResult(respuestaCambios(cambios.leerDesde(since, maximo))));
+        resultado.onCompletion(cancelar);
+        // Un cambio publicado antes de suscribirse no llegaría por el aviso.
+        lote = cambios.leerDesde(since, maximo);
+        if (!lote.cambios().isEmpty() || lote.resincronizar()) {
+            resultado.setResult(respuestaCambios(lote));
+        }
+        return resultado;
     }
 
     @Operation(summary = "Obtener tienda por ID", description = "Busca una tienda específica por su ID.")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Tienda encontrada"),
+        @ApiResponse(responseCode = "304", description = "La tienda no cambió desde el ETag indicado"),
         @ApiResponse(responseCode = "404", description = "Tienda no encontrada")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<?> getTiendaById(@PathVariable Integer id) {
+    public ResponseEntity<?> getTiendaById(@PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Long version = tiendaService.version(id);
+            if (version != null && coincideEtag(ifNoneMatch, etag(version))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag(version)).varyBy(HttpHeaders.ACCEPT).build();
+            }
+        }
         try {
             Tienda tienda = tiendaService.findById(id);
-            return ResponseEntity.ok(assembler.toModel(tienda));
+            String etag = etag(tienda);
+            return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(assembler.toModel(tienda));
         } catch (NoSuchElementException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Tienda no encontrada con ID: " + id);
         }
     }
 
-    @Operation(summary = "Crear nueva tienda", description = "Crea una nueva tienda en el sistema.")
+    @Operation(summary = "Crear nueva tienda", description = "Crea una nueva tienda en el sistema. "
+            + "Con 'Prefer: respond-async' se valida, se encola y se responde 202 con la URL de estado; "
+            + "la cabecera Idempotency-Key hace seguro reintentar esa petición.")
     @ApiResponses({
         @ApiResponse(responseCode = "201", description = "Tienda creada exitosamente"),
+        @ApiResponse(responseCode = "202", description = "Tienda encolada; su estado está en la cabecera Location"),
         @ApiResponse(responseCode = "400", description = "Datos inválidos"),
-        @ApiResponse(responseCode = "409", description = "Conflicto de integridad de datos")
+        @ApiResponse(responseCode = "409", description = "Ya existe una tienda con ese nombre y dirección"),
+        @ApiResponse(responseCode = "422", description = "La Idempotency-Key ya se usó con otra tienda"),
+        @ApiResponse(responseCode = "503", description = "La cola de escritura está llena")
     })
     @PostMapping
-    public ResponseEntity<EntityModel<Tienda>> crearTienda(@RequestBody Tienda tienda) {
+    public ResponseEntity<?> crearTienda(
+            @RequestBody Tienda tienda,
+            @RequestHeader(value = PREFER, required = false) String prefer,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        if (prefer != null && prefer.contains(RESPOND_ASYNC)) {
+            return encolarTienda(tienda, idempotencyKey);
+        }
         try {
             Tienda nueva = tiendaService.save(tienda);
             return ResponseEntity
                     .created(linkTo(methodOn(TiendaController.class)
-                            .getTiendaById(nueva.getIdTienda())).toUri())
+                            .getTiendaById(nueva.getIdTienda(), null)).toUri())
+                    .eTag(etag(nueva))
                     .body(assembler.toModel(nueva));
         } catch (DataIntegrityViolationException ex) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, 
@@ -90,42 +466,259 @@ public class TiendaController {
         }
     }
 
-    @Operation(summary = "Actualizar tienda", description = "Actualiza los datos de una tienda existente.")
+    @Operation(summary = "Estado de una creación diferida", description = "Indica si la tienda encolada con "
+            + "'Prefer: respond-async' sigue pendiente, se creó (con su ID y cabecera Location) o fue rechazada.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Estado de la operación"),
+        @ApiResponse(responseCode = "404", description = "Operación desconocida o expirada")
+    })
+    @GetMapping("/pending/{id}")
+    public ResponseEntity<EstadoEscritura> getEstadoEscritura(@PathVariable String id) {
+        EstadoEscritura estado = escrituraDiferida.estado(id);
+        if (estado == null) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (estado.estado() == EstadoEscritura.Estado.CREADA) {
+            respuesta.location(linkTo(methodOn(TiendaController.class).getTiendaById(estado.idTienda(), null)).toUri());
+        }
+        return respuesta.body(estado);
+    }
+
+    @Operation(summary = "Actualizar tienda", description = "Actualiza los datos de una tienda existente. "
+            + "Con If-Match solo se aplica si la tienda conserva la versión indicada.")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Tienda actualizada exitosamente"),
         @ApiResponse(responseCode = "404", description = "Tienda no encontrada"),
-        @ApiResponse(responseCode = "400", description = "Datos inválidos")
+        @ApiResponse(responseCode = "400", description = "Datos inválidos"),
+        @ApiResponse(responseCode = "412", description = "La tienda fue modificada por otra petición")
     })
     @PutMapping("/{id}")
-    public ResponseEntity<?> actualizarTienda(@PathVariable Integer id, @RequestBody Tienda tienda) {
+    public ResponseEntity<?> actualizarTienda(@PathVariable Integer id, @RequestBody Tienda tienda,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Tienda actualizada = tiendaService.update(id, tienda);
-            return ResponseEntity.ok(assembler.toModel(actualizada));
+            Tienda actualizada = ifMatch == null
+                    ? tiendaService.update(id, tienda)
+                    : tiendaService.update(id, tienda, versionEsperada(ifMatch));
+            return ResponseEntity.ok().eTag(etag(actualizada)).body(assembler.toModel(actualizada));
         } catch (NoSuchElementException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Tienda no encontrada con ID: " + id);
+        } catch (OptimisticLockingFailureException ex) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body("La tienda fue modificada por otra petición: " + ex.getMessage());
         } catch (Exception ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Error al actualizar la tienda: " + ex.getMessage());
         }
     }
 
-    @Operation(summary = "Eliminar tienda", description = "Elimina una tienda del sistema por su ID.")
+    @Operation(summary = "Modificar campos de una tienda", description = "Actualiza solo los campos presentes en el cuerpo; "
+            + "los omitidos o null conservan su valor. Con If-Match solo se aplica si la tienda conserva la versión indicada; "
+            + "la respuesta trae el nuevo ETag.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "204", description = "Tienda modificada exitosamente"),
+        @ApiResponse(responseCode = "404", description = "Tienda no encontrada"),
+        @ApiResponse(responseCode = "400", description = "Datos inválidos"),
+        @ApiResponse(responseCode = "412", description = "La tienda fue modificada por otra petición")
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> modificarTienda(@PathVariable Integer id, @RequestBody Tienda campos,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Tienda modificada = tiendaService.actualizarCampos(id, campos, ifMatch == null ? null : versionEsperada(ifMatch));
+            return ResponseEntity.noContent().eTag(etag(modificada)).build();
+        } catch (NoSuchElementException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Tienda no encontrada con ID: " + id);
+        } catch (OptimisticLockingFailureException ex) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body("La tienda fue modificada por otra petición: " + ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error al modificar la tienda: " + ex.getMessage());
+        }
+    }
+
+    @Operation(summary = "Eliminar tienda", description = "Elimina una tienda del sistema por su ID. "
+            + "Con If-Match solo se elimina si la tienda conserva la versión indicada.")
     @ApiResponses({
         @ApiResponse(responseCode = "204", description = "Tienda eliminada exitosamente"),
-        @ApiResponse(responseCode = "404", description = "Tienda no encontrada")
+        @ApiResponse(responseCode = "404", description = "Tienda no encontrada"),
+        @ApiResponse(responseCode = "412", description = "La tienda fue modificada por otra petición")
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> eliminarTienda(@PathVariable Integer id) {
+    public ResponseEntity<?> eliminarTienda(@PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            tiendaService.delete(id);
+            if (ifMatch == null) {
+                tiendaService.delete(id);
+            } else {
+                tiendaService.delete(id, versionEsperada(ifMatch));
+            }
             return ResponseEntity.noContent().build();
         } catch (NoSuchElementException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Tienda no encontrada con ID: " + id);
+        } catch (OptimisticLockingFailureException ex) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body("La tienda fue modificada por otra petición: " + ex.getMessage());
         } catch (Exception ex) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error interno al eliminar la tienda");
         }
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Crear tiendas en lote", description = "Crea varias tiendas a partir de un arreglo JSON o de un flujo NDJSON, devolviendo el resultado de cada elemento.")
+    @ApiResponse(responseCode = "200", description = "Lote procesado; revisar el estado de cada elemento")
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ResultadoLote>> crearTiendasEnLote(@RequestBody List<Tienda> tiendas) {
+        return ResponseEntity.ok(tiendaService.crearEnLote(tiendas.iterator()));
+    }
+
+    @Operation(summary = "Crear tiendas en lote (NDJSON)", description = "Como el lote JSON, pero lee una tienda por línea "
+            + "sin cargar todo el cuerpo en memoria.")
+    @ApiResponse(responseCode = "200", description = "Lote procesado; revisar el estado de cada elemento")
+    @PostMapping(value = "/bulk", consumes = NDJSON)
+    public ResponseEntity<List<ResultadoLote>> crearTiendasEnLoteNdjson(InputStream cuerpo) throws IOException {
+        try (MappingIterator<Tienda> tiendas = leerNdjson(cuerpo, Tienda.class)) {
+            return ResponseEntity.ok(tiendaService.crearEnLote(tiendas));
+        }
+    }
+
+    @Operation(summary = "Actualizar tiendas en lote", description = "Actualiza varias tiendas identificadas por su ID a partir de un arreglo JSON o de un flujo NDJSON.")
+    @ApiResponse(responseCode = "200", description = "Lote procesado; revisar el estado de cada elemento")
+    @PutMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ResultadoLote>> actualizarTiendasEnLote(@RequestBody List<Tienda> tiendas) {
+        return ResponseEntity.ok(tiendaService.actualizarEnLote(tiendas.iterator()));
+    }
+
+    @Operation(summary = "Actualizar tiendas en lote (NDJSON)", description = "Como el lote JSON, pero lee una tienda por línea "
+            + "sin cargar todo el cuerpo en memoria.")
+    @ApiResponse(responseCode = "200", description = "Lote procesado; revisar el estado de cada elemento")
+    @PutMapping(value = "/bulk", consumes = NDJSON)
+    public ResponseEntity<List<ResultadoLote>> actualizarTiendasEnLoteNdjson(InputStream cuerpo) throws IOException {
+        try (MappingIterator<Tienda> tiendas = leerNdjson(cuerpo, Tienda.class)) {
+            return ResponseEntity.ok(tiendaService.actualizarEnLote(tiendas));
+        }
+    }
+
+    @Operation(summary = "Eliminar tiendas en lote", description = "Elimina varias tiendas a partir de un arreglo JSON de IDs o de un flujo NDJSON de IDs.")
+    @ApiResponse(responseCode = "200", description = "Lote procesado; revisar el estado de cada elemento")
+    @DeleteMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ResultadoLote>> eliminarTiendasEnLote(@RequestBody List<Integer> ids) {
+        return ResponseEntity.ok(tiendaService.eliminarEnLote(ids.iterator()));
+    }
+
+    @Operation(summary = "Eliminar tiendas en lote (NDJSON)", description = "Como el lote JSON, pero lee un ID por línea "
+            + "sin cargar todo el cuerpo en memoria.")
+    @ApiResponse(responseCode = "200", description = "Lote procesado; revisar el estado de cada elemento")
+    @DeleteMapping(value = "/bulk", consumes = NDJSON)
+    public ResponseEntity<List<ResultadoLote>> eliminarTiendasEnLoteNdjson(InputStream cuerpo) throws IOException {
+        try (MappingIterator<Integer> ids = leerNdjson(cuerpo, Integer.class)) {
+            return ResponseEntity.ok(tiendaService.eliminarEnLote(ids));
+        }
+    }
+
+    // El duplicado (nombre, direccion) se detecta al escribir el lote y queda en el estado
+    private ResponseEntity<EstadoEscritura> encolarTienda(Tienda tienda, String idempotencyKey) {
+        if (tienda.getNombre() == null || tienda.getNombre().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El nombre de la tienda es obligatorio");
+        }
+        String errorDireccion = TiendaService.errorDireccion(tienda.getDireccion());
+        if (errorDireccion != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorDireccion);
+        }
+        String errorCoordenadas = TiendaService.errorCoordenadas(tienda.getLatitud(), tienda.getLongitud());
+        if (errorCoordenadas != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorCoordenadas);
+        }
+        EstadoEscritura estado;
+        try {
+            estado = escrituraDiferida.encolar(tienda, idempotencyKey);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        return ResponseEntity.accepted()
+                .location(linkTo(methodOn(TiendaController.class).getEstadoEscritura(estado.id())).toUri())
+                .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+                .body(estado);
+    }
+
+    private static ResponseEntity<LoteCambios> respuestaCambios(LoteCambios lote) {
+        return ResponseEntity.status(lote.resincronizar() ? HttpStatus.GONE : HttpStatus.OK).body(lote);
+    }
+
+    private static String etag(Tienda tienda) {
+        return etag(tienda.getVersion());
+    }
+
+    private static String etag(Long version) {
+        return "\"" + version + formato() + "\"";
+    }
+
+    // JSON y CBOR son representaciones distintas de la misma versión, así que el ETag fuerte
+    // lleva el formato que elegirá la negociación según Accept (JSON si no se pide otro).
+    private static String formato() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos)) {
+            return "";
+        }
+        String accept = atributos.getRequest().getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return "";
+        }
+        try {
+            List<MediaType> tipos = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(tipos);
+            for (MediaType tipo : tipos) {
+                if (tipo.isWildcardType() || tipo.isWildcardSubtype()) {
+                    return "";
+                }
+                if (tipo.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                    return SUFIJO_CBOR;
+                }
+                if (tipo.isCompatibleWith(MediaType.APPLICATION_JSON) || tipo.isCompatibleWith(MediaTypes.HAL_JSON)) {
+                    return "";
+                }
+            }
+        } catch (InvalidMediaTypeException ex) {
+            // La negociación rechazará la petición; el ETag da igual
+        }
+        return "";
+    }
+
+    // null = cualquier versión ("*"); un ETag que no sea una versión nunca coincide.
+    private static Long versionEsperada(String ifMatch) {
+        String valor = ifMatch.trim();
+        if (valor.equals("*")) {
+            return null;
+        }
+        try {
+            return Long.valueOf(valor.replace("W/", "").replace("\"", "").replace(SUFIJO_CBOR, ""));
+        } catch (NumberFormatException ex) {
+            throw new OptimisticLockingFailureException("ETag no válido: " + ifMatch);
+        }
+    }
+
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String valor : ifNoneMatch.split(",")) {
+            String candidato = valor.trim();
+            if (candidato.startsWith("W/")) {
+                candidato = candidato.substring(2);
+            }
+            if (candidato.equals("*") || candidato.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T> MappingIterator<T> leerNdjson(InputStream cuerpo, Class<T> tipo) throws IOException {
+        return objectMapper.readerFor(tipo).readValues(cuerpo);
+    }
+}
@@ -0,0 +1,161 @@
+package com.tienda.vm_tienda.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource de solo lectura que reparte las conexiones entre las réplicas en round robin. Un hilo
+ * mide cada cierto tiempo el retraso de replicación de cada una; las que pasan del máximo o no
+ * responden se saltan hasta la siguiente medición, y si no queda ninguna se usa la primaria.
+ * Se enchufa como {@code readOnlyDataSource} de un LazyConnectionDataSourceProxy, de modo que solo
+ * lo usan las transacciones {@code @Transactional(readOnly = true)}.
+ */
+public class ReplicasLectura extends AbstractDataSource implements AutoCloseable {
+
+    // Segundos desde la última transacción aplicada, o 0 si la réplica ya aplicó todo lo recibido
+    public static final String CONSULTA_RETRASO_POSTGRES =
+            "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final DataSource primaria;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final double retrasoMaximoSegundos;
+    private final String consultaRetraso;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final Counter aReplica;
+    private final Counter aPrimaria;
+    private final ScheduledExecutorService verificador;
+
+    public ReplicasLectura(DataSource primaria, Map<String, DataSource> replicas, Duration retrasoMaximo,
+                           String consultaRetraso, Duration intervaloVerificacion, MeterRegistry registry) {
+        this.primaria = primaria;
+        this.retrasoMaximoSegundos = retrasoMaximo.toMillis() / 1000.0;
+        this.consultaRetraso = consultaRetraso;
+        replicas.forEach((nombre, dataSource) -> {
+            Replica replica = new Replica(nombre, dataSource);
+            this.replicas.add(replica);
+            Gauge.builder("tienda.replicas.retraso", replica, r -> r.retrasoSegundos)
+                    .tag("replica", nombre).baseUnit("seconds").register(registry);
+        });
+        this.aReplica = Counter.builder("tienda.replicas.conexiones").tag("destino", "replica").register(registry);
+        this.aPrimaria = Counter.builder("tienda.replicas.conexiones").tag("destino", "primaria").register(registry);
+        Gauge.builder("tienda.replicas.disponibles", this, ReplicasLectura::disponibles).register(registry);
+
+        // Hasta la primera medición las lecturas van a la primaria
+        CustomizableThreadFactory hilos = new CustomizableThreadFactory("verificar-replicas-");
+        hilos.setDaemon(true);
+        this.verificador = Executors.newSingleThreadScheduledExecutor(hilos);
+        long intervaloMs = intervaloVerificacion.toMillis();
+        if (intervaloMs > 0) {
+            verificador.scheduleWithFixedDelay(this::verificar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return conectar(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return conectar(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection conectar(Conexion conexion) throws SQLException {
+        int total = replicas.size();
+        int inicio = total == 0 ? 0 : Math.floorMod(siguiente.getAndIncrement(), total);
+        for (int i = 0; i < total; i++) {
+            Replica replica = replicas.get((inicio + i) % total);
+            if (!replica.disponible) {
+                continue;
+            }
+            try {
+                Connection abierta = conexion.abrir(replica.dataSource);
+                aReplica.increment();
+                return abierta;
+            } catch (SQLException ex) {
+                // Se descarta hasta que la próxima verificación la vuelva a ver sana
+                replica.disponible = false;
+            }
+        }
+        aPrimaria.increment();
+        return conexion.abrir(primaria);
+    }
+
+    void verificar() {
+        for (Replica replica : replicas) {
+            try (Connection conexion = replica.dataSource.getConnection();
+                 Statement sentencia = conexion.createStatement();
+                 ResultSet resultado = sentencia.executeQuery(consultaRetraso)) {
+                double retraso = resultado.next() ? resultado.getDouble(1) : Double.MAX_VALUE;
+                replica.retrasoSegundos = retraso;
+                replica.disponible = retraso <= retrasoMaximoSegundos;
+            } catch (SQLException | RuntimeException ex) {
+                replica.retrasoSegundos = Double.NaN;
+                replica.disponible = false;
+            }
+        }
+    }
+
+    public int disponibles() {
+        int disponibles = 0;
+        for (Replica replica : replicas) {
+            if (replica.disponible) {
+                disponibles++;
+            }
+        }
+        return disponibles;
+    }
+
+    @Override
+    public void close() throws Exception {
+        verificador.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Conexion {
+        Connection abrir(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final String nombre;
+        private final DataSource dataSource;
+        private volatile boolean disponible;
+        private volatile double retrasoSegundos = Double.NaN;
+
+        private Replica(String nombre, DataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public String toString() {
+            return nombre;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.tienda.vm_tienda.dto;
+
+import com.tienda.vm_tienda.model.Tienda;
+
+import java.time.Instant;
+
+public record CambioTienda(long secuencia, Tipo tipo, Integer idTienda, Tienda tienda, Instant instante) {
+
+    public enum Tipo {
+        CREADA,
+        ACTUALIZADA,
+        ELIMINADA
+    }
+}
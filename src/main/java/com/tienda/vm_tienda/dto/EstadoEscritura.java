@@ -0,0 +1,25 @@
+package com.tienda.vm_tienda.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EstadoEscritura(String id, Estado estado, Integer idTienda, String mensaje, Instant encolada) {
+
+    public enum Estado {
+        PENDIENTE,
+        CREADA,
+        DUPLICADA,
+        INVALIDA,
+        ERROR
+    }
+
+    public static EstadoEscritura pendiente(String id, Instant encolada) {
+        return new EstadoEscritura(id, Estado.PENDIENTE, null, null, encolada);
+    }
+
+    public EstadoEscritura resuelta(Estado estado, Integer idTienda, String mensaje) {
+        return new EstadoEscritura(id, estado, idTienda, mensaje, encolada);
+    }
+}
@@ -0,0 +1,10 @@
+package com.tienda.vm_tienda.dto;
+
+import java.util.List;
+
+/**
+ * Cambios posteriores a una secuencia. Si {@code resincronizar} es true el cliente quedó fuera
+ * del buffer y debe volver a leer el listado completo antes de seguir desde {@code ultimaSecuencia}.
+ */
+public record LoteCambios(List<CambioTienda> cambios, long ultimaSecuencia, boolean resincronizar) {
+}
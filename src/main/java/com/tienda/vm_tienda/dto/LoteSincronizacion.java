@@ -0,0 +1,12 @@
+package com.tienda.vm_tienda.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Tiendas creadas, modificadas o eliminadas después del cursor pedido, en orden de modificación.
+ * {@code since} y {@code after} son el cursor para la siguiente petición; si {@code hayMas} es
+ * false el cliente está al día hasta unos segundos antes de la respuesta.
+ */
+public record LoteSincronizacion(List<TiendaSincronizada> tiendas, Instant since, Integer after, boolean hayMas) {
+}
@@ -0,0 +1,11 @@
+package com.tienda.vm_tienda.dto;
+
+import java.util.List;
+
+/**
+ * Avance de una importación tras confirmar un lote. Los contadores son acumulados desde el
+ * inicio; {@code errores} solo trae las filas rechazadas de este lote. Si la lectura del
+ * archivo falla, la última línea trae {@code error} y lo ya confirmado se conserva.
+ */
+public record ProgresoImportacion(int lote, long procesadas, long creadas, List<ResultadoLote> errores, String error) {
+}
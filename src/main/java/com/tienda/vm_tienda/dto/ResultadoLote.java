@@ -0,0 +1,21 @@
+package com.tienda.vm_tienda.dto;
+
+public record ResultadoLote(int indice, Integer idTienda, Estado estado, String mensaje) {
+
+    public enum Estado {
+        CREADA,
+        ACTUALIZADA,
+        ELIMINADA,
+        DUPLICADA,
+        NO_ENCONTRADA,
+        INVALIDA
+    }
+
+    public static ResultadoLote ok(int indice, Integer idTienda, Estado estado) {
+        return new ResultadoLote(indice, idTienda, estado, null);
+    }
+
+    public static ResultadoLote error(int indice, Integer idTienda, Estado estado, String mensaje) {
+        return new ResultadoLote(indice, idTienda, estado, mensaje);
+    }
+}
@@ -0,0 +1,12 @@
+package com.tienda.vm_tienda.dto;
+
+import com.tienda.vm_tienda.model.Tienda;
+
+public record TiendaCercana(Integer idTienda, String nombre, String direccion,
+                            double latitud, double longitud, double distanciaMetros) {
+
+    public static TiendaCercana de(Tienda tienda, double distanciaMetros) {
+        return new TiendaCercana(tienda.getIdTienda(), tienda.getNombre(), tienda.getDireccion(),
+                tienda.getLatitud(), tienda.getLongitud(), distanciaMetros);
+    }
+}
@@ -0,0 +1,11 @@
+package com.tienda.vm_tienda.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TiendaResumen(Integer idTienda, String nombre, String direccion) {
+
+    public TiendaResumen(Integer idTienda, String nombre) {
+        this(idTienda, nombre, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.tienda.vm_tienda.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/** Estado de una tienda en la sincronización incremental; las eliminadas solo traen su ID y la fecha. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TiendaSincronizada(Integer idTienda, String nombre, String direccion, Double latitud,
+                                 Double longitud, Long version, Instant modificadaEn, Instant eliminadaEn) {
+
+    public static TiendaSincronizada eliminada(Integer idTienda, Long version, Instant eliminadaEn) {
+        return new TiendaSincronizada(idTienda, null, null, null, null, version, eliminadaEn, eliminadaEn);
+    }
+}
@@ -0,0 +1,128 @@
+package com.tienda.vm_tienda.filter;
+
+import com.tienda.vm_tienda.controller.TiendaController;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Limita las peticiones en curso con un límite AIMD: crece de a uno mientras la latencia se
+// mantiene bajo el objetivo y se recorta un 10% (como mucho una vez por ventana) cuando la
+// espera por la conexión la dispara. Lo que no cabe se rechaza al instante con 503 en vez de
+// encolarse, para que la latencia de las admitidas siga acotada.
+public class LimiteAdaptativoFilter extends OncePerRequestFilter {
+
+    // Los lotes, la importación y la exportación tardan por diseño: su latencia no dice nada de
+    // la saturación y arrastraría el límite compartido al mínimo. Ya los acota LimiteTasaFilter.
+    private static final Set<String> RUTAS_LARGAS = Set.of(
+            TiendaController.RUTA + "/bulk", TiendaController.RUTA + "/import",
+            TiendaController.RUTA + "/export", TiendaController.RUTA + "/stream");
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final long latenciaObjetivoNanos;
+    private final LongSupplier reloj;
+    private final AtomicInteger limite;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final AtomicInteger exitos = new AtomicInteger();
+    private final AtomicLong ultimoRecorte;
+    private final Counter admitidas;
+    private final Counter rechazadas;
+
+    public LimiteAdaptativoFilter(int limiteInicial, int limiteMinimo, int limiteMaximo,
+                                  long latenciaObjetivoMs, MeterRegistry registry) {
+        this(limiteInicial, limiteMinimo, limiteMaximo, latenciaObjetivoMs, registry, System::nanoTime);
+    }
+
+    LimiteAdaptativoFilter(int limiteInicial, int limiteMinimo, int limiteMaximo,
+                           long latenciaObjetivoMs, MeterRegistry registry, LongSupplier reloj) {
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.latenciaObjetivoNanos = TimeUnit.MILLISECONDS.toNanos(latenciaObjetivoMs);
+        this.reloj = reloj;
+        this.limite = new AtomicInteger(Math.max(limiteMinimo, Math.min(limiteMaximo, limiteInicial)));
+        this.ultimoRecorte = new AtomicLong(reloj.getAsLong() - latenciaObjetivoNanos);
+        this.admitidas = Counter.builder("tienda.limite.peticiones")
+                .tag("limitador", "concurrencia").tag("resultado", "admitida").register(registry);
+        this.rechazadas = Counter.builder("tienda.limite.peticiones")
+                .tag("limitador", "concurrencia").tag("resultado", "rechazada").register(registry);
+        Gauge.builder("tienda.limite.concurrencia", limite, AtomicInteger::get).register(registry);
+        Gauge.builder("tienda.limite.en.curso", enCurso, AtomicInteger::get).register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return RUTAS_LARGAS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!adquirir()) {
+            rechazadas.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+
+        admitidas.increment();
+        long inicio = reloj.getAsLong();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            liberar(reloj.getAsLong() - inicio);
+        }
+    }
+
+    private boolean adquirir() {
+        while (true) {
+            int actual = enCurso.get();
+            if (actual >= limite.get()) {
+                return false;
+            }
+            if (enCurso.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void liberar(long latenciaNanos) {
+        int antes = enCurso.getAndDecrement();
+        if (latenciaNanos > latenciaObjetivoNanos) {
+            recortar();
+        } else if (antes * 2 >= limite.get() && exitos.incrementAndGet() >= limite.get()) {
+            // Solo crece si el límite se está usando: un límite ocioso no dice nada de la capacidad
+            exitos.set(0);
+            limite.updateAndGet(l -> Math.min(limiteMaximo, l + 1));
+        }
+    }
+
+    private void recortar() {
+        long ahora = reloj.getAsLong();
+        long ultimo = ultimoRecorte.get();
+        if (ahora - ultimo >= latenciaObjetivoNanos && ultimoRecorte.compareAndSet(ultimo, ahora)) {
+            exitos.set(0);
+            limite.updateAndGet(l -> Math.max(limiteMinimo, l * 9 / 10));
+        }
+    }
+
+    public int limiteActual() {
+        return limite.get();
+    }
+}
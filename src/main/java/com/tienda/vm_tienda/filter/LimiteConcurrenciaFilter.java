@@ -0,0 +1,56 @@
+package com.tienda.vm_tienda.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Con hilos virtuales Tomcat acepta tantas peticiones como lleguen; este filtro deja
+// pasar a la capa JPA solo tantas como conexiones tiene el pool y hace esperar al
+// resto en un semáforo justo (que aparca el hilo virtual sin bloquear el carrier).
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    private final Semaphore permisos;
+    private final long esperaMaximaMs;
+
+    public LimiteConcurrenciaFilter(int concurrenciaMaxima, long esperaMaximaMs) {
+        this.permisos = new Semaphore(concurrenciaMaxima, true);
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean adquirido;
+        try {
+            adquirido = permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            adquirido = false;
+        }
+
+        if (!adquirido) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    public int permisosDisponibles() {
+        return permisos.availablePermits();
+    }
+}
@@ -0,0 +1,131 @@
+package com.tienda.vm_tienda.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tienda.vm_tienda.controller.TiendaController;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Token bucket por cliente (X-API-Key registrada o, si no, la IP) y por ruta, para que un cliente
+// que inunda POST o el listado completo no deje sin la única conexión al resto. Cada cubeta es
+// un AtomicLong con el instante teórico de la próxima llegada (GCRA), así que admitir es un CAS.
+public class LimiteTasaFilter extends OncePerRequestFilter {
+
+    public static final String API_KEY = "X-API-Key";
+
+    private static final Set<String> RUTAS_COLECCION = Set.of(
+            TiendaController.RUTA, TiendaController.RUTA + "/stream", TiendaController.RUTA + "/export");
+
+    private enum Clase { LECTURA, COLECCION, ESCRITURA }
+
+    public record Tasa(double porSegundo, int rafaga) {
+
+        long intervaloNanos() {
+            return (long) (TimeUnit.SECONDS.toNanos(1) / porSegundo);
+        }
+    }
+
+    private final Tasa lectura;
+    private final Tasa coleccion;
+    private final Tasa escritura;
+    private final Set<String> apiKeys;
+    private final LongSupplier reloj;
+    private final Cache<String, AtomicLong> cubetas = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(5))
+            .maximumSize(100_000)
+            .build();
+    private final Counter admitidas;
+    private final Counter rechazadas;
+
+    public LimiteTasaFilter(Tasa lectura, Tasa coleccion, Tasa escritura, Set<String> apiKeys,
+                            MeterRegistry registry) {
+        this(lectura, coleccion, escritura, apiKeys, registry, System::nanoTime);
+    }
+
+    LimiteTasaFilter(Tasa lectura, Tasa coleccion, Tasa escritura, Set<String> apiKeys,
+                     MeterRegistry registry, LongSupplier reloj) {
+        this.lectura = lectura;
+        this.coleccion = coleccion;
+        this.escritura = escritura;
+        this.apiKeys = Set.copyOf(apiKeys);
+        this.reloj = reloj;
+        this.admitidas = Counter.builder("tienda.limite.peticiones")
+                .tag("limitador", "tasa").tag("resultado", "admitida").register(registry);
+        this.rechazadas = Counter.builder("tienda.limite.peticiones")
+                .tag("limitador", "tasa").tag("resultado", "rechazada").register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        Clase clase = clasificar(request, ruta);
+        Tasa tasa = clase == Clase.ESCRITURA ? escritura : clase == Clase.COLECCION ? coleccion : lectura;
+        String clave = cliente(request) + " " + clase + " " + request.getMethod() + " "
+                + ruta.replaceAll("/(\\d+|[0-9a-fA-F-]{36})(?=/|$)", "/{id}");
+
+        long esperaNanos = intentar(cubetas.get(clave, k -> new AtomicLong(Long.MIN_VALUE)), tasa);
+        if (esperaNanos > 0) {
+            rechazadas.increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            long segundos = (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, segundos)));
+            return;
+        }
+        admitidas.increment();
+        chain.doFilter(request, response);
+    }
+
+    // Devuelve 0 si la petición entra, o cuánto falta para que haya una ficha libre.
+    private long intentar(AtomicLong llegadaTeorica, Tasa tasa) {
+        long intervalo = tasa.intervaloNanos();
+        long tolerancia = intervalo * tasa.rafaga();
+        while (true) {
+            long ahora = reloj.getAsLong();
+            long actual = llegadaTeorica.get();
+            long siguiente = Math.max(actual, ahora) + intervalo;
+            if (siguiente - ahora > tolerancia) {
+                return siguiente - ahora - tolerancia;
+            }
+            if (llegadaTeorica.compareAndSet(actual, siguiente)) {
+                return 0;
+            }
+        }
+    }
+
+    private static Clase clasificar(HttpServletRequest request, String ruta) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return Clase.ESCRITURA;
+        }
+        // El listado solo es acotado cuando se pagina
+        boolean paginado = request.getParameter("limit") != null || request.getParameter("after") != null;
+        if (RUTAS_COLECCION.contains(ruta) && !(ruta.equals(TiendaController.RUTA) && paginado)) {
+            return Clase.COLECCION;
+        }
+        return Clase.LECTURA;
+    }
+
+    // Una clave inventada no puede dar cubetas nuevas: si no está registrada cuenta la IP.
+    private String cliente(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY);
+        return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+    }
+}
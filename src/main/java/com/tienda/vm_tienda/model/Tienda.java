@@ -1,30 +1,93 @@
 package com.tienda.vm_tienda.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.tienda.vm_tienda.config.CacheSegundoNivelConfig;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+
 @Entity
-@Table(name = "tienda")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheSegundoNivelConfig.REGION_TIENDA)
+// Las eliminadas quedan como lápidas hasta la purga; ninguna consulta JPQL ni carga por ID las ve.
+// (nombre, direccion) es único entre las vigentes: las lápidas tienen vigente a NULL y no chocan.
+@SQLRestriction("eliminada_en is null")
+@Table(name = "tienda", uniqueConstraints = @UniqueConstraint(
+        name = "uk_tienda_nombre_direccion_vigente", columnNames = {"nombre", "direccion", "vigente"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Tienda {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @org.springframework.data.annotation.Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tienda_seq")
+    @SequenceGenerator(name = "tienda_seq", sequenceName = "tienda_seq", allocationSize = 50)
     private Integer idTienda;
 
     @Column(nullable = false, length = 255)
     private String nombre;
 
-    @Column(length = 500)
+    @Column(nullable = false, length = 500)
     private String direccion;
 
+    // Grados WGS84; opcionales, las tiendas sin coordenadas no aparecen en /near
+    private Double latitud;
+
+    private Double longitud;
+
+    @Version
+    @org.springframework.data.annotation.Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    @JsonIgnore
+    @Column(name = "modificada_en")
+    private Instant modificadaEn;
+
+    @JsonIgnore
+    @Column(name = "eliminada_en")
+    private Instant eliminadaEn;
+
+    // TRUE en las vigentes y NULL en las lápidas; lo mantiene marcarModificada a partir de eliminadaEn
+    @JsonIgnore
+    @Column(name = "vigente")
+    private Boolean vigente;
+
+    public Tienda(Integer idTienda, String nombre, String direccion) {
+        this(idTienda, nombre, direccion, null);
+    }
+
+    public Tienda(Integer idTienda, String nombre, String direccion, Long version) {
+        this(idTienda, nombre, direccion, null, null, version);
+    }
+
+    public Tienda(Integer idTienda, String nombre, String direccion, Double latitud, Double longitud, Long version) {
+        this(idTienda, nombre, direccion, latitud, longitud, version, null, null, null);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void marcarModificada() {
+        modificadaEn = Instant.now();
+        vigente = eliminadaEn == null ? Boolean.TRUE : null;
+    }
 }
\ No newline at end of file
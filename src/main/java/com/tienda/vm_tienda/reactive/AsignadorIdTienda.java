@@ -0,0 +1,68 @@
+package com.tienda.vm_tienda.reactive;
+
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+// La columna id_tienda no tiene valor por defecto: JPA asigna los IDs desde tienda_seq
+// con el optimizador "pooled" (allocationSize = 50). Aquí se replica el mismo esquema
+// (cada nextval reserva el bloque [valor - 49, valor]) para no colisionar con Hibernate.
+@Component
+@Profile("reactive")
+public class AsignadorIdTienda implements BeforeConvertCallback<Tienda> {
+
+    static final int TAMANO_BLOQUE = 50;
+
+    private final DatabaseClient databaseClient;
+
+    private int siguiente;
+    private int limite;
+
+    public AsignadorIdTienda(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Publisher<Tienda> onBeforeConvert(Tienda tienda, SqlIdentifier tabla) {
+        if (tienda.getIdTienda() != null) {
+            return Mono.just(tienda);
+        }
+        Integer id = siguienteLocal();
+        if (id != null) {
+            tienda.setIdTienda(id);
+            return Mono.just(tienda);
+        }
+        return siguienteValorSecuencia()
+                .map(valor -> {
+                    tienda.setIdTienda(nuevoBloque(valor));
+                    return tienda;
+                });
+    }
+
+    // Igual que Hibernate, se descarta el valor inicial de la secuencia, cuyo bloque
+    // no es completo.
+    private Mono<Long> siguienteValorSecuencia() {
+        return databaseClient.sql("SELECT nextval('tienda_seq')")
+                .map(fila -> fila.get(0, Long.class))
+                .one()
+                .flatMap(valor -> valor < TAMANO_BLOQUE ? siguienteValorSecuencia() : Mono.just(valor));
+    }
+
+    private synchronized Integer siguienteLocal() {
+        return siguiente < limite ? siguiente++ : null;
+    }
+
+    private synchronized int nuevoBloque(long valor) {
+        int alto = (int) valor;
+        siguiente = alto - TAMANO_BLOQUE + 2;
+        limite = alto + 1;
+        return alto - TAMANO_BLOQUE + 1;
+    }
+}
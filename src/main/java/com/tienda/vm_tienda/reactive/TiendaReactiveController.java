@@ -0,0 +1,152 @@
+package com.tienda.vm_tienda.reactive;
+
+import com.tienda.vm_tienda.assembler.TiendaModelAssembler;
+import com.tienda.vm_tienda.controller.TiendaController;
+import com.tienda.vm_tienda.model.Tienda;
+import com.tienda.vm_tienda.service.TiendaService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+@RestController
+@Profile("reactive")
+@RequestMapping(TiendaController.RUTA)
+@Tag(name = "Tienda (reactiva)", description = "API no bloqueante para gestionar tiendas.")
+public class TiendaReactiveController {
+
+    @Autowired
+    private TiendaReactiveService tiendaService;
+
+    @Autowired
+    private TiendaModelAssembler assembler;
+
+    @Operation(summary = "Listar todas las tiendas", description = "Obtiene las tiendas sin bloquear hilos. "
+            + "Con 'after' y/o 'limit' devuelve una página ordenada por ID a partir del ID indicado.")
+    @ApiResponse(responseCode = "200", description = "Lista devuelta correctamente")
+    @GetMapping
+    public Mono<CollectionModel<EntityModel<Tienda>>> getAllTiendas(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            ServerHttpRequest request) {
+        String base = base(request);
+        Flux<Tienda> tiendas = after == null && limit == null
+                ? tiendaService.findAll()
+                : tiendaService.findPage(after, limit);
+
+        return tiendas.collectList().map(lista -> {
+            CollectionModel<EntityModel<Tienda>> modelo = CollectionModel.of(
+                    lista.stream().map(tienda -> assembler.toModel(tienda, base)).toList(),
+                    Link.of(request.getURI().toString()).withSelfRel());
+            if ((after != null || limit != null) && lista.size() == TiendaService.tamanoPagina(limit)) {
+                String siguiente = UriComponentsBuilder.fromUriString(base)
+                        .queryParam("after", lista.get(lista.size() - 1).getIdTienda())
+                        .queryParamIfPresent("limit", Optional.ofNullable(limit))
+                        .toUriString();
+                modelo.add(Link.of(siguiente).withRel("next"));
+            }
+            return modelo;
+        });
+    }
+
+    @Operation(summary = "Listar tiendas en streaming", description = "Emite todas las tiendas como NDJSON "
+            + "a medida que el cliente las consume.")
+    @ApiResponse(responseCode = "200", description = "Flujo NDJSON de tiendas")
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public Flux<Tienda> streamTiendas() {
+        return tiendaService.findAll();
+    }
+
+    @Operation(summary = "Obtener tienda por ID", description = "Busca una tienda específica por su ID.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Tienda encontrada"),
+        @ApiResponse(responseCode = "404", description = "Tienda no encontrada")
+    })
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> getTiendaById(@PathVariable Integer id, ServerHttpRequest request) {
+        return tiendaService.findById(id)
+                .<ResponseEntity<?>>map(tienda -> ResponseEntity.ok(assembler.toModel(tienda, base(request))))
+                .onErrorResume(NoSuchElementException.class, ex -> Mono.just(
+                        ResponseEntity.status(HttpStatus.NOT_FOUND).body("Tienda no encontrada con ID: " + id)));
+    }
+
+    @Operation(summary = "Crear nueva tienda", description = "Crea una nueva tienda en el sistema.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "201", description = "Tienda creada exitosamente"),
+        @ApiResponse(responseCode = "400", description = "Datos inválidos"),
+        @ApiResponse(responseCode = "409", description = "Ya existe una tienda con ese nombre y dirección")
+    })
+    @PostMapping
+    public Mono<ResponseEntity<EntityModel<Tienda>>> crearTienda(@RequestBody Tienda tienda, ServerHttpRequest request) {
+        String base = base(request);
+        return tiendaService.save(tienda)
+                .map(nueva -> ResponseEntity
+                        .created(URI.create(base + "/" + nueva.getIdTienda()))
+                        .body(assembler.toModel(nueva, base)))
+                .onErrorMap(DataIntegrityViolationException.class, ex -> new ResponseStatusException(
+                        HttpStatus.CONFLICT, "Error de integridad de datos: " + ex.getMessage()))
+                .onErrorMap(ex -> !(ex instanceof ResponseStatusException), ex -> new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST, "Error al crear la tienda: " + ex.getMessage()));
+    }
+
+    @Operation(summary = "Actualizar tienda", description = "Actualiza los datos de una tienda existente.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Tienda actualizada exitosamente"),
+        @ApiResponse(responseCode = "404", description = "Tienda no encontrada"),
+        @ApiResponse(responseCode = "400", description = "Datos inválidos")
+    })
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<?>> actualizarTienda(@PathVariable Integer id, @RequestBody Tienda tienda,
+            ServerHttpRequest request) {
+        return tiendaService.update(id, tienda)
+                .<ResponseEntity<?>>map(actualizada -> ResponseEntity.ok(assembler.toModel(actualizada, base(request))))
+                .onErrorResume(NoSuchElementException.class, ex -> Mono.just(
+                        ResponseEntity.status(HttpStatus.NOT_FOUND).body("Tienda no encontrada con ID: " + id)))
+                .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("Error al actualizar la tienda: " + ex.getMessage())));
+    }
+
+    @Operation(summary = "Eliminar tienda", description = "Elimina una tienda del sistema por su ID.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "204", description = "Tienda eliminada exitosamente"),
+        @ApiResponse(responseCode = "404", description = "Tienda no encontrada")
+    })
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<?>> eliminarTienda(@PathVariable Integer id) {
+        return tiendaService.delete(id)
+                .then(Mono.<ResponseEntity<?>>just(ResponseEntity.noContent().build()))
+                .onErrorResume(NoSuchElementException.class, ex -> Mono.just(
+                        ResponseEntity.status(HttpStatus.NOT_FOUND).body("Tienda no encontrada con ID: " + id)))
+                .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("Error interno al eliminar la tienda")));
+    }
+
+    private static String base(ServerHttpRequest request) {
+        return UriComponentsBuilder.fromUri(request.getURI())
+                .replacePath(TiendaController.RUTA)
+                .replaceQuery(null)
+                .build()
+                .toUriString();
+    }
+}
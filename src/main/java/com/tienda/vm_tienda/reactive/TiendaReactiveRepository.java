@@ -0,0 +1,32 @@
+package com.tienda.vm_tienda.reactive;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import com.tienda.vm_tienda.model.Tienda;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+// R2DBC no aplica @SQLRestriction: cada consulta excluye las lápidas explícitamente.
+public interface TiendaReactiveRepository extends R2dbcRepository<Tienda, Integer> {
+    Mono<Tienda> findByNombreAndDireccionAndEliminadaEnIsNull(String nombre, String direccion);
+
+    @Override
+    @Query("SELECT * FROM tienda WHERE id_tienda = :id AND eliminada_en IS NULL")
+    Mono<Tienda> findById(Integer id);
+
+    @Query("SELECT * FROM tienda WHERE id_tienda > :after AND eliminada_en IS NULL ORDER BY id_tienda LIMIT :limit")
+    Flux<Tienda> findPage(Integer after, int limit);
+
+    @Query("SELECT * FROM tienda WHERE eliminada_en IS NULL ORDER BY id_tienda")
+    Flux<Tienda> streamAll();
+
+    @Modifying
+    @Query("UPDATE tienda SET eliminada_en = :ahora, modificada_en = :ahora, vigente = NULL, version = version + 1 "
+            + "WHERE id_tienda = :id AND eliminada_en IS NULL")
+    Mono<Integer> eliminar(Integer id, Instant ahora);
+}
@@ -0,0 +1,73 @@
+package com.tienda.vm_tienda.reactive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import com.tienda.vm_tienda.model.Tienda;
+import com.tienda.vm_tienda.service.TiendaService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.NoSuchElementException;
+
+@Service
+@Profile("reactive")
+public class TiendaReactiveService {
+
+    @Autowired
+    private TiendaReactiveRepository tiendaRepository;
+
+    public Flux<Tienda> findAll() {
+        return tiendaRepository.streamAll();
+    }
+
+    public Flux<Tienda> findPage(Integer after, Integer limit) {
+        return tiendaRepository.findPage(after == null ? 0 : after, TiendaService.tamanoPagina(limit));
+    }
+
+    public Mono<Tienda> findById(Integer id) {
+        return tiendaRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("Tienda no encontrada con ID: " + id)));
+    }
+
+    public Mono<Tienda> save(Tienda tienda) {
+        String error = error(tienda);
+        if (error != null) {
+            return Mono.error(new IllegalArgumentException(error));
+        }
+        // Con ID o versión en el cuerpo R2DBC la daría por existente y haría un UPDATE
+        tienda.setIdTienda(null);
+        tienda.setVersion(null);
+        tienda.setEliminadaEn(null);
+        tienda.setVigente(true);
+        tienda.setModificadaEn(Instant.now());
+        return tiendaRepository.save(tienda);
+    }
+
+    public Mono<Tienda> update(Integer id, Tienda tiendaActualizada) {
+        String error = error(tiendaActualizada);
+        if (error != null) {
+            return Mono.error(new IllegalArgumentException(error));
+        }
+        return findById(id).flatMap(tienda -> {
+            tienda.setNombre(tiendaActualizada.getNombre());
+            tienda.setDireccion(tiendaActualizada.getDireccion());
+            tienda.setLatitud(tiendaActualizada.getLatitud());
+            tienda.setLongitud(tiendaActualizada.getLongitud());
+            tienda.setModificadaEn(Instant.now());
+            return tiendaRepository.save(tienda);
+        });
+    }
+
+    public Mono<Void> delete(Integer id) {
+        return findById(id).flatMap(tienda -> tiendaRepository.eliminar(id, Instant.now())).then();
+    }
+
+    private static String error(Tienda tienda) {
+        String error = TiendaService.errorDireccion(tienda.getDireccion());
+        return error != null ? error : TiendaService.errorCoordenadas(tienda.getLatitud(), tienda.getLongitud());
+    }
+}
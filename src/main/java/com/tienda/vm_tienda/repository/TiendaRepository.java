@@ -1,11 +1,120 @@
 package com.tienda.vm_tienda.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.tienda.vm_tienda.dto.TiendaResumen;
 import com.tienda.vm_tienda.model.Tienda;
 
+import jakarta.persistence.QueryHint;
+
 public interface TiendaRepository extends JpaRepository<Tienda, Integer> {
+
+    // Espacio de consulta que no declara ninguna entidad. Con él las escrituras nativas por ID no
+    // vacían la región de Tienda de la caché de segundo nivel, como harían en JPQL o con el espacio
+    // "tienda"; quien las llama desaloja solo la fila escrita.
+    String ESPACIO_FILA = "tienda_fila";
+
     Optional<Tienda> findByNombreAndDireccion(String nombre, String direccion);
-}
\ No newline at end of file
+
+    List<Tienda> findByNombreIn(Collection<String> nombres);
+
+    @Query("select t.version from Tienda t where t.idTienda = :id")
+    Optional<Long> findVersionById(@Param("id") Integer id);
+
+    // Nativa para contar también las lápidas: eliminar mueve modificada_en igual que crear y actualizar.
+    // La resuelve ix_tienda_modificada_en sin recorrer la tabla.
+    @Query(value = "select max(modificada_en) from tienda", nativeQuery = true)
+    Optional<Instant> ultimaModificacion();
+
+    // Un solo UPDATE con la versión en el WHERE: 0 filas es que no existe, ya es lápida o cambió de
+    // versión. Los cast dejan a Postgres deducir el tipo de un parámetro null.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ESPACIO_FILA))
+    @Query(value = "update tienda set nombre = :nombre, direccion = :direccion, latitud = :latitud, "
+            + "longitud = :longitud, version = version + 1, modificada_en = :ahora "
+            + "where id_tienda = :id and eliminada_en is null "
+            + "and (cast(:version as bigint) is null or version = :version)", nativeQuery = true)
+    int actualizar(@Param("id") Integer id, @Param("nombre") String nombre, @Param("direccion") String direccion,
+            @Param("latitud") Double latitud, @Param("longitud") Double longitud, @Param("version") Long version,
+            @Param("ahora") Instant ahora);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ESPACIO_FILA))
+    @Query(value = "update tienda set nombre = coalesce(cast(:nombre as varchar), nombre), "
+            + "direccion = coalesce(cast(:direccion as varchar), direccion), "
+            + "latitud = coalesce(cast(:latitud as double precision), latitud), "
+            + "longitud = coalesce(cast(:longitud as double precision), longitud), "
+            + "version = version + 1, modificada_en = :ahora "
+            + "where id_tienda = :id and eliminada_en is null "
+            + "and (cast(:version as bigint) is null or version = :version)", nativeQuery = true)
+    int actualizarCampos(@Param("id") Integer id, @Param("nombre") String nombre, @Param("direccion") String direccion,
+            @Param("latitud") Double latitud, @Param("longitud") Double longitud, @Param("version") Long version,
+            @Param("ahora") Instant ahora);
+
+    // Borrado lógico: la fila queda como lápida hasta que la purgue PurgaTiendas
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ESPACIO_FILA))
+    @Query(value = "update tienda set eliminada_en = :ahora, modificada_en = :ahora, vigente = null, "
+            + "version = version + 1 "
+            + "where id_tienda = :id and eliminada_en is null "
+            + "and (cast(:version as bigint) is null or version = :version)", nativeQuery = true)
+    int eliminar(@Param("id") Integer id, @Param("version") Long version, @Param("ahora") Instant ahora);
+
+    // Relee una fila recién escrita sin tomarla de la caché de segundo nivel ni dejarla en ella
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    @Query("select t from Tienda t where t.idTienda = :id")
+    Optional<Tienda> releer(@Param("id") Integer id);
+
+    // SQL nativo porque @SQLRestriction oculta justo las lápidas que hay que borrar. Los espacios
+    // de consulta limitan la invalidación de la caché de segundo nivel a la tabla tienda.
+    // La lápida más reciente se conserva: si se borrara, max(modificada_en) volvería a un valor
+    // anterior y un ETag de la colección ya entregado podría volver a valer.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "tienda"))
+    @Query(value = "delete from tienda where id_tienda in (select id_tienda from tienda "
+            + "where eliminada_en < :limite and modificada_en < (select max(modificada_en) from tienda) "
+            + "order by eliminada_en limit :lote)", nativeQuery = true)
+    int purgarEliminadas(@Param("limite") Instant limite, @Param("lote") int lote);
+
+    // Los listados van en transacciones readOnly y pueden leer de una réplica: toman de la caché de
+    // segundo nivel pero no la llenan, para no dejar en ella filas atrasadas.
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "GET"))
+    List<Tienda> findAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "GET"))
+    List<Tienda> findByIdTiendaGreaterThanOrderByIdTiendaAsc(Integer after, Limit limit);
+
+    @Query("select new com.tienda.vm_tienda.dto.TiendaResumen(t.idTienda, t.nombre) "
+            + "from Tienda t where t.idTienda > :after order by t.idTienda")
+    List<TiendaResumen> findResumenes(@Param("after") Integer after, Limit limit);
+
+    @Query("select new com.tienda.vm_tienda.dto.TiendaResumen(t.idTienda, t.nombre, t.direccion) "
+            + "from Tienda t where t.idTienda > :after order by t.idTienda")
+    List<TiendaResumen> findResumenesConDireccion(@Param("after") Integer after, Limit limit);
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select t from Tienda t order by t.idTienda")
+    Stream<Tienda> streamAll();
+}
@@ -0,0 +1,527 @@
+package com.tienda.vm_tienda.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tienda.vm_tienda.dto.EstadoEscritura;
+import com.tienda.vm_tienda.dto.ResultadoLote;
+import com.tienda.vm_tienda.model.Tienda;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola acotada para crear tiendas fuera del hilo de la petición. Un único escritor la vacía
+ * en lotes con {@link TiendaService#crearEnLote}, que ya agrupa cada lote en una transacción
+ * con su comprobación de duplicados. Si se configura un diario, cada tienda encolada se anota
+ * antes de responder y las no confirmadas se vuelven a encolar al arrancar; los resultados
+ * también se anotan, así que el estado y la Idempotency-Key de cada operación sobreviven a un
+ * reinicio durante la retención. Las anotaciones se escriben bajo el candado pero el fsync va
+ * fuera y agrupado: uno solo cubre todo lo escrito por las peticiones que llegaron mientras se
+ * hacía el anterior.
+ */
+@Component
+@Profile("!reactive")
+public class EscrituraDiferida {
+
+    private static final Logger log = LoggerFactory.getLogger(EscrituraDiferida.class);
+    private static final String ENCOLADA = "ENCOLADA";
+    private static final String CONFIRMADA = "CONFIRMADA";
+    private static final long ESPERA_REINTENTO_MS = 1000;
+    private static final int MAX_INTENTOS = 3;
+    // El diario se reescribe sin lo vencido cuando pasa de este tamaño o del doble de lo que quedó
+    private static final long COMPACTAR_DESDE_BYTES = 1 << 20;
+    private static final Duration RETENCION = Duration.ofHours(24);
+
+    private final TiendaService tiendaService;
+    private final int capacidad;
+    private final int tamanoLote;
+    private final Path rutaDiario;
+    private final ObjectMapper json = new ObjectMapper();
+    private final Cache<String, EstadoEscritura> estados = Caffeine.newBuilder()
+            .expireAfterWrite(RETENCION).maximumSize(1_000_000).build();
+    private final Cache<String, Operacion> claves = Caffeine.newBuilder()
+            .expireAfterWrite(RETENCION).maximumSize(1_000_000).build();
+    private final Counter encoladas;
+    private final Counter rechazadas;
+    private final Counter creadas;
+    private final Counter fallidas;
+
+    private BlockingQueue<Pendiente> cola;
+    private volatile FileChannel diario;
+    private long tamanoCompactado;
+    private volatile boolean activo = true;
+    private Thread escritor;
+    // Anotadas en el diario y esperando su fsync; ocupan hueco en la cola aunque aún no estén en ella
+    private int reservadas;
+    // Secuencia de escrituras al diario, avanzada bajo el candado de this
+    private volatile long escritos;
+    private final Object sincronizacion = new Object();
+    private long sincronizados;
+    private boolean sincronizando;
+
+    public EscrituraDiferida(TiendaService tiendaService, MeterRegistry registry,
+                             @Value("${tienda.escritura-diferida.capacidad:10000}") int capacidad,
+                             @Value("${tienda.escritura-diferida.tamano-lote:500}") int tamanoLote,
+                             @Value("${tienda.escritura-diferida.diario:}") String diario) {
+        this.tiendaService = tiendaService;
+        this.capacidad = capacidad;
+        this.tamanoLote = tamanoLote;
+        this.rutaDiario = diario.isBlank() ? null : Path.of(diario);
+        this.encoladas = contador(registry, "encolada");
+        this.rechazadas = contador(registry, "rechazada");
+        this.creadas = contador(registry, "creada");
+        this.fallidas = contador(registry, "fallida");
+        Gauge.builder("tienda.escritura.diferida.cola", this, e -> e.cola == null ? 0 : e.cola.size())
+                .register(registry);
+        Gauge.builder("tienda.escritura.diferida.retraso", this, EscrituraDiferida::retrasoSegundos)
+                .baseUnit("seconds").register(registry);
+    }
+
+    @PostConstruct
+    public void recuperar() throws IOException {
+        Map<String, Asiento> pendientes = new LinkedHashMap<>();
+        Map<String, Asiento> resueltas = new LinkedHashMap<>();
+        if (rutaDiario != null) {
+            if (rutaDiario.getParent() != null) {
+                Files.createDirectories(rutaDiario.getParent());
+            }
+            leerDiario(pendientes, resueltas);
+            compactar(pendientes.values(), resueltas.values());
+            diario = abrirDiario();
+        }
+
+        for (Asiento asiento : resueltas.values()) {
+            estados.put(asiento.id(), new EstadoEscritura(asiento.id(), asiento.estado(), asiento.idTienda(),
+                    asiento.mensaje(), Instant.ofEpochMilli(asiento.encolada())));
+            if (asiento.clave() != null) {
+                claves.put(asiento.clave(), new Operacion(asiento.id(), asiento.tienda()));
+            }
+        }
+        cola = new LinkedBlockingQueue<>(Math.max(capacidad, pendientes.size()));
+        for (Asiento asiento : pendientes.values()) {
+            Pendiente pendiente = new Pendiente(asiento.id(), asiento.clave(), asiento.tienda(),
+                    Instant.ofEpochMilli(asiento.encolada()), true);
+            cola.add(pendiente);
+            registrar(pendiente);
+        }
+        if (!pendientes.isEmpty()) {
+            log.info("Escritura diferida: {} tiendas pendientes recuperadas del diario.", pendientes.size());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        escritor = new Thread(this::escribir, "escritura-diferida");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    // Lo que no alcance a escribirse sigue en el diario para el próximo arranque
+    @PreDestroy
+    public void detener() throws InterruptedException, IOException {
+        activo = false;
+        if (escritor != null) {
+            escritor.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (diario != null) {
+            diario.close();
+        }
+    }
+
+    /**
+     * Encola una tienda ya validada. Con la misma Idempotency-Key y la misma tienda devuelve la
+     * operación original en vez de encolar otra.
+     *
+     * @throws IllegalArgumentException si la clave ya se usó con otra tienda
+     * @throws IllegalStateException si la cola está llena
+     */
+    public EstadoEscritura encolar(Tienda tienda, String claveIdempotencia) {
+        Tienda copia = copiar(tienda);
+        copia.setIdTienda(null);
+        copia.setVersion(null);
+
+        Pendiente pendiente;
+        EstadoEscritura estado;
+        long secuencia;
+        synchronized (this) {
+            if (claveIdempotencia != null) {
+                Operacion previa = claves.getIfPresent(claveIdempotencia);
+                if (previa != null && !previa.tienda().equals(copia)) {
+                    throw new IllegalArgumentException("La Idempotency-Key ya se usó con otra tienda");
+                }
+                EstadoEscritura anterior = previa == null ? null : estados.getIfPresent(previa.id());
+                if (anterior != null) {
+                    return anterior;
+                }
+            }
+            if (cola.remainingCapacity() <= reservadas) {
+                rechazadas.increment();
+                throw new IllegalStateException("La cola de escritura está llena");
+            }
+
+            pendiente = new Pendiente(UUID.randomUUID().toString(), claveIdempotencia, copia, Instant.now(), false);
+            secuencia = anotar(List.of(new Asiento(ENCOLADA, pendiente.id(), claveIdempotencia, copia,
+                    pendiente.encolada().toEpochMilli(), null, null, null)));
+            reservadas++;
+            estado = registrar(pendiente);
+        }
+
+        try {
+            sincronizar(secuencia);
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                reservadas--;
+                estados.invalidate(pendiente.id());
+                if (claveIdempotencia != null) {
+                    claves.invalidate(claveIdempotencia);
+                }
+            }
+            throw ex;
+        }
+        synchronized (this) {
+            reservadas--;
+            // Los productores están sincronizados y el escritor solo saca: el hueco reservado sigue libre
+            cola.add(pendiente);
+        }
+        encoladas.increment();
+        return estado;
+    }
+
+    public EstadoEscritura estado(String id) {
+        return estados.getIfPresent(id);
+    }
+
+    private void escribir() {
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(200, TimeUnit.MILLISECONDS);
+                if (primero != null) {
+                    List<Pendiente> lote = new ArrayList<>(tamanoLote);
+                    lote.add(primero);
+                    cola.drainTo(lote, tamanoLote - 1);
+                    procesar(lote);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Escritura diferida: error inesperado", ex);
+            }
+        }
+    }
+
+    /** Procesa de inmediato lo que haya en la cola; devuelve cuántas tiendas se procesaron. */
+    int drenar() throws InterruptedException {
+        List<Pendiente> lote = new ArrayList<>(tamanoLote);
+        cola.drainTo(lote, tamanoLote);
+        if (!lote.isEmpty()) {
+            procesar(lote);
+        }
+        return lote.size();
+    }
+
+    // Un error que no es de integridad (conexión, timeout) se reintenta unas pocas veces; después
+    // se crea de a una para que solo quede en ERROR lo que de verdad no se puede escribir.
+    private void procesar(List<Pendiente> lote) throws InterruptedException {
+        List<EstadoEscritura> resueltas = null;
+        for (int intento = 1; resueltas == null; intento++) {
+            try {
+                List<ResultadoLote> resultados = tiendaService.crearEnLote(lote.stream()
+                        .map(pendiente -> copiar(pendiente.tienda())).iterator());
+                resueltas = new ArrayList<>(lote.size());
+                for (int i = 0; i < lote.size(); i++) {
+                    resueltas.add(resolver(lote.get(i), resultados.get(i)));
+                }
+            } catch (DataIntegrityViolationException ex) {
+                // Una creación síncrona ganó la carrera por (nombre, direccion): se reintenta de a una
+                resueltas = crearDeAUna(lote);
+            } catch (RuntimeException ex) {
+                if (!activo) {
+                    return;
+                }
+                if (intento >= MAX_INTENTOS) {
+                    log.warn("Escritura diferida: el lote de {} falló {} veces, se crea de a una: {}",
+                            lote.size(), intento, ex.getMessage());
+                    resueltas = crearDeAUna(lote);
+                } else {
+                    log.warn("Escritura diferida: reintentando lote de {}: {}", lote.size(), ex.getMessage());
+                    Thread.sleep(ESPERA_REINTENTO_MS);
+                }
+            }
+        }
+
+        List<Asiento> confirmadas = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            Pendiente pendiente = lote.get(i);
+            EstadoEscritura resuelta = resueltas.get(i);
+            (resuelta.estado() == EstadoEscritura.Estado.CREADA ? creadas : fallidas).increment();
+            estados.put(pendiente.id(), resuelta);
+            // La tienda solo hace falta para comparar un reintento con la misma Idempotency-Key
+            confirmadas.add(new Asiento(CONFIRMADA, pendiente.id(), pendiente.clave(),
+                    pendiente.clave() == null ? null : pendiente.tienda(), pendiente.encolada().toEpochMilli(),
+                    resuelta.estado(), resuelta.idTienda(), resuelta.mensaje()));
+        }
+        long secuencia;
+        synchronized (this) {
+            secuencia = anotar(confirmadas);
+        }
+        sincronizar(secuencia);
+        synchronized (this) {
+            // Con anotaciones reservadas el diario tiene encoladas que aún no están en la cola
+            if (diario != null && cola.isEmpty() && reservadas == 0) {
+                compactarSiCrecio();
+            }
+        }
+    }
+
+    private List<EstadoEscritura> crearDeAUna(List<Pendiente> lote) {
+        List<EstadoEscritura> resueltas = new ArrayList<>(lote.size());
+        for (Pendiente pendiente : lote) {
+            resueltas.add(crearUna(pendiente));
+        }
+        return resueltas;
+    }
+
+    private EstadoEscritura crearUna(Pendiente pendiente) {
+        try {
+            return resolver(pendiente, tiendaService.crearEnLote(List.of(copiar(pendiente.tienda())).iterator()).get(0));
+        } catch (DataIntegrityViolationException ex) {
+            return resolver(pendiente, TiendaService.rechazada(0, null, ex));
+        } catch (RuntimeException ex) {
+            log.warn("Escritura diferida: no se pudo crear la tienda {}: {}", pendiente.id(), ex.getMessage());
+            return EstadoEscritura.pendiente(pendiente.id(), pendiente.encolada())
+                    .resuelta(EstadoEscritura.Estado.ERROR, null, ex.getMessage());
+        }
+    }
+
+    // Una recuperada del diario pudo crearse antes de la caída sin que llegara a anotarse su
+    // confirmación: si la vigente que la choca es idéntica, es la misma tienda y no un duplicado.
+    private EstadoEscritura resolver(Pendiente pendiente, ResultadoLote resultado) {
+        EstadoEscritura.Estado estado = switch (resultado.estado()) {
+            case CREADA -> EstadoEscritura.Estado.CREADA;
+            case DUPLICADA -> EstadoEscritura.Estado.DUPLICADA;
+            case INVALIDA -> EstadoEscritura.Estado.INVALIDA;
+            default -> EstadoEscritura.Estado.ERROR;
+        };
+        EstadoEscritura resuelta = EstadoEscritura.pendiente(pendiente.id(), pendiente.encolada());
+        if (estado == EstadoEscritura.Estado.DUPLICADA && pendiente.recuperada()) {
+            Tienda tienda = pendiente.tienda();
+            Tienda existente = tiendaService.findVigente(tienda.getNombre(), tienda.getDireccion()).orElse(null);
+            if (existente != null && Objects.equals(existente.getLatitud(), tienda.getLatitud())
+                    && Objects.equals(existente.getLongitud(), tienda.getLongitud())) {
+                return resuelta.resuelta(EstadoEscritura.Estado.CREADA, existente.getIdTienda(), null);
+            }
+        }
+        return resuelta.resuelta(estado, resultado.idTienda(), resultado.mensaje());
+    }
+
+    private EstadoEscritura registrar(Pendiente pendiente) {
+        EstadoEscritura estado = EstadoEscritura.pendiente(pendiente.id(), pendiente.encolada());
+        estados.put(pendiente.id(), estado);
+        if (pendiente.clave() != null) {
+            claves.put(pendiente.clave(), new Operacion(pendiente.id(), pendiente.tienda()));
+        }
+        return estado;
+    }
+
+    private double retrasoSegundos() {
+        Pendiente primero = cola == null ? null : cola.peek();
+        return primero == null ? 0 : Duration.between(primero.encolada(), Instant.now()).toMillis() / 1000.0;
+    }
+
+    // Se llama con el candado de this. Escribe sin fsync y devuelve la secuencia que hay que
+    // pasar a sincronizar para saber que lo escrito ya está en disco.
+    private long anotar(List<Asiento> asientos) {
+        if (diario == null || asientos.isEmpty()) {
+            return escritos;
+        }
+        try {
+            StringBuilder lineas = new StringBuilder();
+            for (Asiento asiento : asientos) {
+                lineas.append(json.writeValueAsString(asiento)).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lineas.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                diario.write(buffer);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo escribir el diario de escritura diferida", ex);
+        }
+        return ++escritos;
+    }
+
+    // Group commit: si no hay un fsync en curso, este hilo lo hace por todo lo escrito hasta
+    // ahora; si lo hay, espera a que termine y, si no lo cubrió, el siguiente lo cubre junto
+    // con lo que escribieron los demás mientras tanto.
+    private void sincronizar(long secuencia) {
+        if (diario == null) {
+            return;
+        }
+        while (true) {
+            long hasta;
+            synchronized (sincronizacion) {
+                while (sincronizando && sincronizados < secuencia) {
+                    try {
+                        sincronizacion.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrumpido esperando el diario de escritura diferida", ex);
+                    }
+                }
+                if (sincronizados >= secuencia) {
+                    return;
+                }
+                sincronizando = true;
+                hasta = escritos;
+            }
+
+            IOException error = null;
+            try {
+                diario.force(false);
+            } catch (IOException ex) {
+                error = ex;
+            }
+            synchronized (sincronizacion) {
+                sincronizando = false;
+                if (error == null) {
+                    sincronizados = Math.max(sincronizados, hasta);
+                }
+                sincronizacion.notifyAll();
+            }
+            if (error != null) {
+                throw new UncheckedIOException("No se pudo sincronizar el diario de escritura diferida", error);
+            }
+        }
+    }
+
+    // Se llama con el candado de this, sin encoladas pendientes ni reservadas: todo lo anotado ya
+    // está sincronizado y nadie más usa el canal mientras se reemplaza.
+    private void compactarSiCrecio() {
+        try {
+            if (diario.size() <= Math.max(COMPACTAR_DESDE_BYTES, 2 * tamanoCompactado)) {
+                return;
+            }
+            Map<String, Asiento> pendientes = new LinkedHashMap<>();
+            Map<String, Asiento> resueltas = new LinkedHashMap<>();
+            leerDiario(pendientes, resueltas);
+            compactar(pendientes.values(), resueltas.values());
+            diario.close();
+            diario = abrirDiario();
+        } catch (IOException ex) {
+            log.warn("Escritura diferida: no se pudo compactar el diario", ex);
+        }
+    }
+
+    // Las encoladas sin confirmar quedan en pendientes; las resueltas dentro de la retención, en
+    // resueltas. Las confirmaciones anteriores a que se anotara el resultado no traen estado.
+    private void leerDiario(Map<String, Asiento> pendientes, Map<String, Asiento> resueltas) throws IOException {
+        if (!Files.exists(rutaDiario)) {
+            return;
+        }
+        long vigentesDesde = Instant.now().minus(RETENCION).toEpochMilli();
+        for (String linea : Files.readAllLines(rutaDiario, StandardCharsets.UTF_8)) {
+            Asiento asiento = leer(linea);
+            if (asiento == null) {
+                continue;
+            }
+            if (ENCOLADA.equals(asiento.tipo())) {
+                pendientes.put(asiento.id(), asiento);
+            } else {
+                pendientes.remove(asiento.id());
+                if (asiento.estado() != null && asiento.encolada() >= vigentesDesde) {
+                    resueltas.put(asiento.id(), asiento);
+                }
+            }
+        }
+    }
+
+    private void compactar(Iterable<Asiento> pendientes, Iterable<Asiento> resueltas) throws IOException {
+        Path temporal = rutaDiario.resolveSibling(rutaDiario.getFileName() + ".tmp");
+        List<String> lineas = new ArrayList<>();
+        for (Asiento asiento : resueltas) {
+            lineas.add(json.writeValueAsString(asiento));
+        }
+        for (Asiento asiento : pendientes) {
+            lineas.add(json.writeValueAsString(asiento));
+        }
+        Files.write(temporal, lineas, StandardCharsets.UTF_8);
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+            canal.force(false);
+        }
+        Files.move(temporal, rutaDiario, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        tamanoCompactado = Files.size(rutaDiario);
+    }
+
+    private FileChannel abrirDiario() throws IOException {
+        return FileChannel.open(rutaDiario, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    // Una línea cortada por una caída a mitad de escritura se descarta
+    private Asiento leer(String linea) {
+        if (linea.isBlank()) {
+            return null;
+        }
+        try {
+            return json.readValue(linea, Asiento.class);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static Counter contador(MeterRegistry registry, String resultado) {
+        return Counter.builder("tienda.escritura.diferida").tag("resultado", resultado).register(registry);
+    }
+
+    private static Tienda copiar(Tienda tienda) {
+        Tienda copia = new Tienda();
+        BeanUtils.copyProperties(tienda, copia);
+        return copia;
+    }
+
+    private record Pendiente(String id, String clave, Tienda tienda, Instant encolada, boolean recuperada) {
+    }
+
+    private record Operacion(String id, Tienda tienda) {
+    }
+
+    record Asiento(String tipo, String id, String clave, Tienda tienda, long encolada,
+                   EstadoEscritura.Estado estado, Integer idTienda, String mensaje) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.tienda.vm_tienda.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * "Single-flight" para lecturas: las llamadas concurrentes con la misma operación y clave
+ * comparten una sola consulta en curso en vez de lanzar cada una la suya. No guarda resultados;
+ * en cuanto la consulta termina, la siguiente llamada vuelve a ir a la base de datos.
+ */
+@Component
+public class LecturasCompartidas {
+
+    private final Map<Clave, CompletableFuture<Object>> enCurso = new ConcurrentHashMap<>();
+    private final Map<String, Counter> ejecutadas = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalescidas = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public LecturasCompartidas(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V ejecutar(String operacion, Object clave, Supplier<V> consulta) {
+        Clave k = new Clave(operacion, clave);
+        CompletableFuture<Object> existente = enCurso.get(k);
+        if (existente == null) {
+            CompletableFuture<Object> propia = new CompletableFuture<>();
+            existente = enCurso.putIfAbsent(k, propia);
+            if (existente == null) {
+                contador(ejecutadas, "tienda.lecturas.ejecutadas", operacion).increment();
+                try {
+                    V valor = consulta.get();
+                    propia.complete(valor);
+                    return valor;
+                } catch (RuntimeException | Error ex) {
+                    propia.completeExceptionally(ex);
+                    throw ex;
+                } finally {
+                    enCurso.remove(k, propia);
+                }
+            }
+        }
+        contador(coalescidas, "tienda.lecturas.coalescidas", operacion).increment();
+        return (V) esperar(existente);
+    }
+
+    /**
+     * Tras una escritura, las llamadas nuevas no deben sumarse a una consulta que empezó antes
+     * y podría devolver el valor anterior; quienes ya esperaban la reciben igual.
+     */
+    public void invalidar(String operacion, Object clave) {
+        enCurso.remove(new Clave(operacion, clave));
+    }
+
+    private static Object esperar(CompletableFuture<Object> consulta) {
+        try {
+            return consulta.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (ex.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw ex;
+        }
+    }
+
+    private Counter contador(Map<String, Counter> contadores, String nombre, String operacion) {
+        return contadores.computeIfAbsent(operacion, op -> Counter.builder(nombre)
+                .tag("operacion", op)
+                .register(meterRegistry));
+    }
+
+    private record Clave(String operacion, Object valor) {
+    }
+}
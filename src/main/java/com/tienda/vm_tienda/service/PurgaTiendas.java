@@ -0,0 +1,68 @@
+package com.tienda.vm_tienda.service;
+
+import com.tienda.vm_tienda.repository.TiendaRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Borra físicamente las lápidas con más antigüedad que la retención. Cada lote es un DELETE en su
+ * propia transacción, así ninguna ejecución bloquea muchas filas a la vez ni infla el WAL de golpe;
+ * lo que no alcance a borrarse queda para la siguiente. Los clientes de /sync que tarden más que la
+ * retención en volver a sincronizar ya no verán esas eliminaciones y deben resincronizar desde cero.
+ */
+@Component
+@Profile("!reactive")
+@EnableScheduling
+@ConditionalOnProperty(name = "tienda.purga.habilitada", matchIfMissing = true)
+public class PurgaTiendas {
+
+    private static final Logger log = LoggerFactory.getLogger(PurgaTiendas.class);
+
+    private final TiendaRepository tiendaRepository;
+    private final Duration retencion;
+    private final int tamanoLote;
+    private final int lotesPorEjecucion;
+    private final Counter purgadas;
+
+    public PurgaTiendas(TiendaRepository tiendaRepository, MeterRegistry registry,
+                        @Value("${tienda.purga.retencion:7d}") Duration retencion,
+                        @Value("${tienda.purga.tamano-lote:1000}") int tamanoLote,
+                        @Value("${tienda.purga.lotes-por-ejecucion:50}") int lotesPorEjecucion) {
+        this.tiendaRepository = tiendaRepository;
+        this.retencion = retencion;
+        this.tamanoLote = tamanoLote;
+        this.lotesPorEjecucion = lotesPorEjecucion;
+        this.purgadas = Counter.builder("tienda.purga.eliminadas").register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${tienda.purga.intervalo:PT10M}", fixedDelayString = "${tienda.purga.intervalo:PT10M}")
+    public int purgar() {
+        Instant limite = Instant.now().minus(retencion);
+        int total = 0;
+        for (int lote = 0; lote < lotesPorEjecucion; lote++) {
+            int borradas = tiendaRepository.purgarEliminadas(limite, tamanoLote);
+            total += borradas;
+            if (borradas < tamanoLote) {
+                break;
+            }
+        }
+        purgadas.increment(total);
+        if (total > 0) {
+            log.info("Purga: {} tiendas eliminadas antes de {} borradas.", total, limite);
+        }
+        return total;
+    }
+}
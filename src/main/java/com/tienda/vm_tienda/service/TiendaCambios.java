@@ -0,0 +1,76 @@
+package com.tienda.vm_tienda.service;
+
+import com.tienda.vm_tienda.dto.CambioTienda;
+import com.tienda.vm_tienda.dto.LoteCambios;
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Buffer circular en memoria con los últimos cambios de tiendas. Cada cambio recibe una
+ * secuencia creciente; los consumidores leen desde la última que vieron y, si el buffer ya
+ * la sobrescribió, reciben la señal de resincronizar.
+ */
+@Component
+public class TiendaCambios {
+
+    private final CambioTienda[] buffer;
+    private final List<Runnable> oyentes = new CopyOnWriteArrayList<>();
+    private long ultima;
+
+    public TiendaCambios(@Value("${tienda.cambios.capacidad:1024}") int capacidad) {
+        this.buffer = new CambioTienda[capacidad];
+    }
+
+    public void publicar(CambioTienda.Tipo tipo, Integer idTienda, Tienda tienda) {
+        synchronized (this) {
+            ultima++;
+            buffer[(int) (ultima % buffer.length)] =
+                    new CambioTienda(ultima, tipo, idTienda, tienda == null ? null : copiar(tienda), Instant.now());
+        }
+        oyentes.forEach(Runnable::run);
+    }
+
+    public synchronized long ultimaSecuencia() {
+        return ultima;
+    }
+
+    public synchronized LoteCambios leerDesde(long desde, int maximo) {
+        long primera = Math.max(1, ultima - buffer.length + 1);
+        if (desde > ultima || desde + 1 < primera) {
+            return new LoteCambios(List.of(), ultima, true);
+        }
+        long hasta = Math.min(ultima, desde + maximo);
+        List<CambioTienda> cambios = new ArrayList<>((int) (hasta - desde));
+        for (long secuencia = desde + 1; secuencia <= hasta; secuencia++) {
+            cambios.add(buffer[(int) (secuencia % buffer.length)]);
+        }
+        return new LoteCambios(cambios, ultima, false);
+    }
+
+    /**
+     * Registra un aviso que se ejecuta en el hilo que publica cada cambio, así que debe ser
+     * rápido y no bloquear. Devuelve la acción que lo da de baja.
+     */
+    public Runnable suscribir(Runnable oyente) {
+        oyentes.add(oyente);
+        return () -> oyentes.remove(oyente);
+    }
+
+    public int capacidad() {
+        return buffer.length;
+    }
+
+    private static Tienda copiar(Tienda tienda) {
+        Tienda copia = new Tienda();
+        BeanUtils.copyProperties(tienda, copia);
+        return copia;
+    }
+}
@@ -0,0 +1,253 @@
+package com.tienda.vm_tienda.service;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.tienda.vm_tienda.model.Tienda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Índice invertido en memoria sobre nombre y dirección, sin tildes ni mayúsculas.
+// Las palabras (TreeMap) resuelven búsquedas por prefijo; los trigramas resuelven
+// búsquedas por subcadena de 3 o más caracteres sin recorrer todas las tiendas.
+@Component
+public class TiendaIndiceBusqueda {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<Integer, Documento> documentos = new HashMap<>();
+    private final NavigableMap<String, Set<Integer>> palabras = new TreeMap<>();
+    private final Map<String, Set<Integer>> trigramas = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void indexar(Tienda tienda) {
+        if (tienda == null || tienda.getIdTienda() == null) {
+            return;
+        }
+        Documento documento = new Documento(copiar(tienda), normalizar(tienda.getNombre()), normalizar(tienda.getDireccion()));
+        lock.writeLock().lock();
+        try {
+            quitar(tienda.getIdTienda());
+            documentos.put(tienda.getIdTienda(), documento);
+            for (String termino : terminos(documento)) {
+                palabras.computeIfAbsent(termino, k -> new HashSet<>()).add(tienda.getIdTienda());
+            }
+            for (String trigrama : trigramas(documento)) {
+                trigramas.computeIfAbsent(trigrama, k -> new HashSet<>()).add(tienda.getIdTienda());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Integer id) {
+        lock.writeLock().lock();
+        try {
+            quitar(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Tienda obtener(Integer id) {
+        lock.readLock().lock();
+        try {
+            Documento documento = documentos.get(id);
+            return documento == null ? null : copiar(documento.tienda());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        lock.writeLock().lock();
+        try {
+            documentos.clear();
+            palabras.clear();
+            trigramas.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return documentos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Page<Tienda> buscar(String consulta, int pagina, int tamanoPagina) {
+        PageRequest pageable = PageRequest.of(pagina, tamanoPagina);
+        String q = normalizar(consulta).trim();
+        if (q.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+
+        Comparator<Coincidencia> orden = Comparator.comparingInt(Coincidencia::rango)
+                .thenComparingInt(c -> c.documento().nombre().length())
+                .thenComparingInt(c -> c.documento().tienda().getIdTienda());
+        int necesarios = (pagina + 1) * tamanoPagina;
+        PriorityQueue<Coincidencia> mejores = new PriorityQueue<>(orden.reversed());
+        int total = 0;
+
+        lock.readLock().lock();
+        try {
+            for (Integer id : candidatos(q)) {
+                Documento documento = documentos.get(id);
+                int rango = documento == null ? -1 : rango(documento, q);
+                if (rango < 0) {
+                    continue;
+                }
+                total++;
+                mejores.add(new Coincidencia(documento, rango));
+                if (mejores.size() > necesarios) {
+                    mejores.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Coincidencia> ordenadas = new ArrayList<>(mejores);
+        ordenadas.sort(orden);
+        List<Tienda> contenido = new ArrayList<>();
+        for (int i = pagina * tamanoPagina; i < ordenadas.size(); i++) {
+            contenido.add(copiar(ordenadas.get(i).documento().tienda()));
+        }
+        return new PageImpl<>(contenido, pageable, total);
+    }
+
+    private Set<Integer> candidatos(String q) {
+        if (q.length() < 3) {
+            Set<Integer> ids = new HashSet<>();
+            for (Set<Integer> conPrefijo : palabras.subMap(q, true, q + Character.MAX_VALUE, false).values()) {
+                ids.addAll(conPrefijo);
+            }
+            return ids;
+        }
+
+        List<Set<Integer>> conjuntos = new ArrayList<>();
+        for (String trigrama : trigramas(q)) {
+            Set<Integer> ids = trigramas.get(trigrama);
+            if (ids == null) {
+                return Set.of();
+            }
+            conjuntos.add(ids);
+        }
+        conjuntos.sort(Comparator.comparingInt(Set::size));
+        Set<Integer> resultado = new HashSet<>(conjuntos.get(0));
+        for (int i = 1; i < conjuntos.size() && !resultado.isEmpty(); i++) {
+            resultado.retainAll(conjuntos.get(i));
+        }
+        return resultado;
+    }
+
+    // 0-1: el nombre empieza por la consulta o alguna de sus palabras; 2: el nombre la contiene;
+    // 3-4: lo mismo para la dirección; -1: no coincide.
+    private static int rango(Documento documento, String q) {
+        int enNombre = rango(documento.nombre(), q);
+        if (enNombre >= 0) {
+            return enNombre;
+        }
+        int enDireccion = rango(documento.direccion(), q);
+        return enDireccion >= 0 ? enDireccion + 3 : -1;
+    }
+
+    private static int rango(String texto, String q) {
+        if (texto.startsWith(q)) {
+            return 0;
+        }
+        int posicion = texto.indexOf(q);
+        if (posicion < 0) {
+            return -1;
+        }
+        return Character.isLetterOrDigit(texto.charAt(posicion - 1)) ? 2 : 1;
+    }
+
+    private void quitar(Integer id) {
+        Documento anterior = documentos.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        for (String termino : terminos(anterior)) {
+            quitarDe(palabras, termino, id);
+        }
+        for (String trigrama : trigramas(anterior)) {
+            quitarDe(trigramas, trigrama, id);
+        }
+    }
+
+    private static void quitarDe(Map<String, Set<Integer>> indice, String clave, Integer id) {
+        Set<Integer> ids = indice.get(clave);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            indice.remove(clave);
+        }
+    }
+
+    private static Set<String> terminos(Documento documento) {
+        Set<String> terminos = new HashSet<>();
+        for (String texto : List.of(documento.nombre(), documento.direccion())) {
+            for (String palabra : SEPARADORES.split(texto)) {
+                if (!palabra.isEmpty()) {
+                    terminos.add(palabra);
+                }
+            }
+        }
+        return terminos;
+    }
+
+    private static Set<String> trigramas(Documento documento) {
+        Set<String> resultado = trigramas(documento.nombre());
+        resultado.addAll(trigramas(documento.direccion()));
+        return resultado;
+    }
+
+    private static Set<String> trigramas(String texto) {
+        Set<String> resultado = new HashSet<>();
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            resultado.add(texto.substring(i, i + 3));
+        }
+        return resultado;
+    }
+
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinTildes.toLowerCase(Locale.ROOT);
+    }
+
+    private static Tienda copiar(Tienda tienda) {
+        Tienda copia = new Tienda();
+        BeanUtils.copyProperties(tienda, copia);
+        return copia;
+    }
+
+    private record Documento(Tienda tienda, String nombre, String direccion) {
+    }
+
+    private record Coincidencia(Documento documento, int rango) {
+    }
+}
@@ -0,0 +1,236 @@
+package com.tienda.vm_tienda.service;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tienda.vm_tienda.dto.TiendaCercana;
+import com.tienda.vm_tienda.model.Tienda;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Rejilla uniforme en grados sobre latitud/longitud. Los k vecinos más cercanos se buscan
+// por anillos de celdas alrededor del punto, dentro de la caja que cubre el radio, y se para
+// en cuanto ningún anillo más lejano puede mejorar el k-ésimo resultado.
+@Component
+public class TiendaIndiceGeografico {
+
+    static final double RADIO_TIERRA_M = 6_371_008.8;
+    private static final double METROS_POR_GRADO = Math.toRadians(1) * RADIO_TIERRA_M;
+
+    private final double celdaGrados;
+    private final int columnas;
+    private final int filas;
+    private final Map<Long, List<Entrada>> celdas = new HashMap<>();
+    private final Map<Integer, Entrada> entradas = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TiendaIndiceGeografico(@Value("${tienda.geo.celda-grados:0.05}") double celdaGrados) {
+        this.celdaGrados = celdaGrados;
+        this.columnas = (int) Math.ceil(360 / celdaGrados);
+        this.filas = (int) Math.ceil(180 / celdaGrados);
+    }
+
+    public static boolean coordenadasValidas(Double latitud, Double longitud) {
+        return latitud != null && longitud != null
+                && latitud >= -90 && latitud <= 90 && longitud >= -180 && longitud <= 180;
+    }
+
+    public void indexar(Tienda tienda) {
+        if (tienda == null || tienda.getIdTienda() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            quitar(tienda.getIdTienda());
+            if (coordenadasValidas(tienda.getLatitud(), tienda.getLongitud())) {
+                Entrada entrada = new Entrada(copiar(tienda), tienda.getLatitud(), tienda.getLongitud(),
+                        celda(fila(tienda.getLatitud()), columna(tienda.getLongitud())));
+                entradas.put(tienda.getIdTienda(), entrada);
+                celdas.computeIfAbsent(entrada.celda(), k -> new ArrayList<>()).add(entrada);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Integer id) {
+        lock.writeLock().lock();
+        try {
+            quitar(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        lock.writeLock().lock();
+        try {
+            celdas.clear();
+            entradas.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return entradas.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<TiendaCercana> cercanas(double latitud, double longitud, double radioMetros, int limite) {
+        int filaOrigen = fila(latitud);
+        int columnaOrigen = columna(longitud);
+        // Ninguna fila fuera de la banda de latitudes que cubre el radio puede tener resultados
+        double radioGrados = radioMetros / METROS_POR_GRADO;
+        int filaMinima = fila(Math.max(-90, latitud - radioGrados));
+        int filaMaxima = fila(Math.min(90, latitud + radioGrados));
+        int anchoColumnas = anchoColumnas(latitud, radioGrados);
+
+        PriorityQueue<TiendaCercana> mejores = new PriorityQueue<>(
+                Comparator.comparingDouble(TiendaCercana::distanciaMetros).reversed());
+
+        lock.readLock().lock();
+        try {
+            if (anchoColumnas < 0) {
+                recorrerBanda(filaMinima, filaMaxima, latitud, longitud, radioMetros, limite, mejores);
+            } else {
+                // La mayor latitud de la banda da el ancho de celda más estrecho
+                double latitudExtrema = Math.abs(latitud) + radioGrados;
+                double ladoMinimoM = celdaGrados * METROS_POR_GRADO * Math.cos(Math.toRadians(latitudExtrema));
+                int maximoAnillo = Math.max(anchoColumnas, Math.max(filaOrigen - filaMinima, filaMaxima - filaOrigen));
+                for (int anillo = 0; anillo <= maximoAnillo; anillo++) {
+                    // Todo punto del anillo está al menos a (anillo - 1) celdas completas del origen
+                    double cotaM = (anillo - 1) * ladoMinimoM;
+                    if (anillo > 1 && mejores.size() == limite && cotaM > mejores.peek().distanciaMetros()) {
+                        break;
+                    }
+                    for (int df = -anillo; df <= anillo; df++) {
+                        int f = filaOrigen + df;
+                        if (f < filaMinima || f > filaMaxima) {
+                            continue;
+                        }
+                        int paso = Math.abs(df) == anillo ? 1 : 2 * anillo;
+                        for (int dc = -anillo; dc <= anillo; dc += Math.max(1, paso)) {
+                            // Con el ancho acotado a menos de media vuelta cada celda se visita una sola vez
+                            if (Math.abs(dc) <= anchoColumnas) {
+                                considerar(celdas.get(celda(f, Math.floorMod(columnaOrigen + dc, columnas))),
+                                        latitud, longitud, radioMetros, limite, mejores);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<TiendaCercana> resultado = new ArrayList<>(mejores);
+        resultado.sort(Comparator.comparingDouble(TiendaCercana::distanciaMetros)
+                .thenComparing(TiendaCercana::idTienda));
+        return resultado;
+    }
+
+    // Semiancho en columnas de la caja que contiene el círculo, o -1 si el círculo alcanza un
+    // polo o abarca todas las longitudes: entonces hay que mirar las filas completas.
+    private int anchoColumnas(double latitud, double radioGrados) {
+        if (Math.abs(latitud) + radioGrados >= 90) {
+            return -1;
+        }
+        double longitudGrados = Math.toDegrees(Math.asin(Math.min(1,
+                Math.sin(Math.toRadians(radioGrados)) / Math.cos(Math.toRadians(latitud)))));
+        int ancho = (int) Math.ceil(longitudGrados / celdaGrados) + 1;
+        return 2 * ancho + 1 >= columnas ? -1 : ancho;
+    }
+
+    // Cerca de un polo todas las columnas de la banda son candidatas. Si hay menos celdas
+    // ocupadas que celdas en la banda, sale más barato recorrer las ocupadas.
+    private void recorrerBanda(int filaMinima, int filaMaxima, double latitud, double longitud, double radioMetros,
+                               int limite, PriorityQueue<TiendaCercana> mejores) {
+        if ((long) (filaMaxima - filaMinima + 1) * columnas > celdas.size()) {
+            for (Map.Entry<Long, List<Entrada>> celda : celdas.entrySet()) {
+                int f = (int) (celda.getKey() >>> 32);
+                if (f >= filaMinima && f <= filaMaxima) {
+                    considerar(celda.getValue(), latitud, longitud, radioMetros, limite, mejores);
+                }
+            }
+            return;
+        }
+        for (int f = filaMinima; f <= filaMaxima; f++) {
+            for (int c = 0; c < columnas; c++) {
+                considerar(celdas.get(celda(f, c)), latitud, longitud, radioMetros, limite, mejores);
+            }
+        }
+    }
+
+    private static void considerar(List<Entrada> enCelda, double latitud, double longitud, double radioMetros,
+                                   int limite, PriorityQueue<TiendaCercana> mejores) {
+        if (enCelda == null) {
+            return;
+        }
+        for (Entrada entrada : enCelda) {
+            double distancia = distanciaMetros(latitud, longitud, entrada.latitud(), entrada.longitud());
+            if (distancia > radioMetros) {
+                continue;
+            }
+            if (mejores.size() < limite) {
+                mejores.add(TiendaCercana.de(entrada.tienda(), distancia));
+            } else if (distancia < mejores.peek().distanciaMetros()) {
+                mejores.poll();
+                mejores.add(TiendaCercana.de(entrada.tienda(), distancia));
+            }
+        }
+    }
+
+    // Haversine
+    static double distanciaMetros(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RADIO_TIERRA_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void quitar(Integer id) {
+        Entrada anterior = entradas.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        List<Entrada> enCelda = celdas.get(anterior.celda());
+        if (enCelda != null && enCelda.remove(anterior) && enCelda.isEmpty()) {
+            celdas.remove(anterior.celda());
+        }
+    }
+
+    private int fila(double latitud) {
+        return Math.min(filas - 1, (int) Math.floor((latitud + 90) / celdaGrados));
+    }
+
+    private int columna(double longitud) {
+        return Math.floorMod((int) Math.floor((longitud + 180) / celdaGrados), columnas);
+    }
+
+    private static long celda(int fila, int columna) {
+        return ((long) fila << 32) | columna;
+    }
+
+    private static Tienda copiar(Tienda tienda) {
+        Tienda copia = new Tienda();
+        BeanUtils.copyProperties(tienda, copia);
+        return copia;
+    }
+
+    private record Entrada(Tienda tienda, double latitud, double longitud, long celda) {
+    }
+}
@@ -1,47 +1,685 @@
 package com.tienda.vm_tienda.service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.tienda.vm_tienda.config.CacheConfig;
+import com.tienda.vm_tienda.dto.CambioTienda;
+import com.tienda.vm_tienda.dto.LoteSincronizacion;
+import com.tienda.vm_tienda.dto.ProgresoImportacion;
+import com.tienda.vm_tienda.dto.ResultadoLote;
+import com.tienda.vm_tienda.dto.TiendaCercana;
+import com.tienda.vm_tienda.dto.TiendaResumen;
+import com.tienda.vm_tienda.dto.TiendaSincronizada;
 import com.tienda.vm_tienda.model.Tienda;
 import com.tienda.vm_tienda.repository.TiendaRepository;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "tienda.service", percentiles = {0.5, 0.95, 0.99}, histogram = true)
 public class TiendaService {
 
+    private static final Logger log = LoggerFactory.getLogger(TiendaService.class);
+
+    public static final int LIMITE_POR_DEFECTO = 100;
+    public static final int LIMITE_MAXIMO = 1000;
+    public static final int TAMANO_LOTE = 500;
+    private static final String FIND_ALL = "findAll";
+    private static final String FIND_BY_ID = "findById";
+    private static final String TODAS = "*";
+    private static final String VIOLACION_UNICIDAD = "23505";
+    private static final String MODIFICADAS_DESDE = "select id_tienda, nombre, direccion, latitud, longitud, version, "
+            + "modificada_en, eliminada_en from tienda "
+            + "where (modificada_en, id_tienda) > (:desde, :despuesDe) and modificada_en <= :hasta "
+            + "order by modificada_en, id_tienda limit :limite";
+
     @Autowired
     private TiendaRepository tiendaRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TiendaIndiceBusqueda indiceBusqueda;
+
+    @Autowired
+    private TiendaIndiceGeografico indiceGeografico;
+
+    @Autowired
+    private TiendaCambios cambios;
+
+    @Autowired
+    private LecturasCompartidas lecturas;
+
+    @Value("${tienda.busqueda.indexar-al-iniciar:true}")
+    private boolean indexarAlIniciar;
+
+    @Value("${tienda.sincronizacion.margen:2s}")
+    private Duration margenSincronizacion;
+
+    @Value("${tienda.replicas.retraso-maximo:5s}")
+    private Duration retrasoMaximoReplicas;
+
+    @Value("${tienda.replicas.intervalo-verificacion:2s}")
+    private Duration intervaloVerificacionReplicas;
+
+    private TransactionTemplate lectura;
+
+    // Tiendas escritas por este proceso hace menos de lo que puede estar atrasada una réplica
+    private com.github.benmanes.caffeine.cache.Cache<Integer, Boolean> escritasRecientes;
+
+    @PostConstruct
+    void iniciarLecturas() {
+        lectura = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        lectura.setReadOnly(true);
+        escritasRecientes = Caffeine.newBuilder()
+                .expireAfterWrite(retrasoMaximoReplicas.plus(intervaloVerificacionReplicas))
+                .build();
+    }
+
     public List<Tienda> findAll() {
-        return tiendaRepository.findAll();
+        return lecturas.ejecutar(FIND_ALL, TODAS, tiendaRepository::findAll);
     }
 
+    public static int tamanoPagina(Integer limit) {
+        return limit == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limit, LIMITE_MAXIMO));
+    }
+
+    public List<Tienda> findPage(Integer after, Integer limit) {
+        return tiendaRepository.findByIdTiendaGreaterThanOrderByIdTiendaAsc(
+                after == null ? 0 : after, Limit.of(tamanoPagina(limit)));
+    }
+
+    // Proyección a DTO: Hibernate no crea entidades ni snapshots para dirty checking.
+    // Sin after ni limit devuelve todas las tiendas, igual que findAll.
+    @Transactional(readOnly = true)
+    public List<TiendaResumen> findResumenes(Integer after, Integer limit, boolean conDireccion) {
+        Integer desde = after == null ? 0 : after;
+        Limit tope = after == null && limit == null ? Limit.unlimited() : Limit.of(tamanoPagina(limit));
+        return conDireccion
+                ? tiendaRepository.findResumenesConDireccion(desde, tope)
+                : tiendaRepository.findResumenes(desde, tope);
+    }
+
+    // Recorre la tabla con un cursor JDBC; cada fila se desacopla tras procesarla
+    // para que el contexto de persistencia no crezca con el tamaño de la tabla.
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Tienda> consumer) {
+        try (Stream<Tienda> tiendas = tiendaRepository.streamAll()) {
+            tiendas.forEach(tienda -> {
+                consumer.accept(tienda);
+                entityManager.detach(tienda);
+            });
+        }
+    }
+
+    // Sale de los datos y no del proceso: todas las instancias, y la misma tras reiniciar,
+    // dan el mismo ETag mientras no cambie ninguna tienda vigente.
+    public String versionColeccion() {
+        Instant ultima = tiendaRepository.ultimaModificacion().orElse(Instant.EPOCH);
+        return Long.toString(ChronoUnit.MICROS.between(Instant.EPOCH, ultima), 36);
+    }
+
+    // Para If-None-Match: la copia en caché basta; si no está, se lee solo la columna version
+    // sin cargar ni cachear la tienda.
+    public Long version(Integer id) {
+        Tienda enCache = cacheManager.getCache(CacheConfig.TIENDAS).get(id, Tienda.class);
+        if (enCache != null) {
+            return enCache.getVersion();
+        }
+        return tiendaRepository.findVersionById(id).orElse(null);
+    }
+
+    public Page<Tienda> buscar(String consulta, int pagina, Integer limit) {
+        return indiceBusqueda.buscar(consulta, Math.max(0, pagina), tamanoPagina(limit));
+    }
+
+    // Sin índice espacial en la base de datos: la rejilla en memoria ya devuelve los k más
+    // cercanos sin recorrer la tabla y se mantiene al día junto al índice de búsqueda.
+    public List<TiendaCercana> cercanas(double latitud, double longitud, double radioMetros, Integer limit) {
+        return indiceGeografico.cercanas(latitud, longitud, radioMetros, tamanoPagina(limit));
+    }
+
+    // Recorre el índice (modificada_en, id_tienda) incluyendo las lápidas, por eso es SQL nativo:
+    // @SQLRestriction las ocultaría. Se corta "margen" antes de ahora para no saltarse escrituras
+    // con hora anterior que aún no confirmaron, y va sin transacción readOnly para leer de la
+    // primaria: en una réplica atrasada se perderían cambios que ya quedaron detrás del cursor.
+    @SuppressWarnings("unchecked")
+    public LoteSincronizacion sincronizar(Instant since, Integer after, Integer limit) {
+        Instant desde = since == null ? Instant.EPOCH : since;
+        int despuesDe = after == null ? 0 : after;
+        int tope = tamanoPagina(limit);
+        List<Object[]> filas = entityManager.createNativeQuery(MODIFICADAS_DESDE)
+                .setParameter("desde", desde)
+                .setParameter("despuesDe", despuesDe)
+                .setParameter("hasta", Instant.now().minus(margenSincronizacion))
+                .setParameter("limite", tope + 1)
+                .unwrap(NativeQuery.class)
+                .addScalar("id_tienda", StandardBasicTypes.INTEGER)
+                .addScalar("nombre", StandardBasicTypes.STRING)
+                .addScalar("direccion", StandardBasicTypes.STRING)
+                .addScalar("latitud", StandardBasicTypes.DOUBLE)
+                .addScalar("longitud", StandardBasicTypes.DOUBLE)
+                .addScalar("version", StandardBasicTypes.LONG)
+                .addScalar("modificada_en", StandardBasicTypes.INSTANT)
+                .addScalar("eliminada_en", StandardBasicTypes.INSTANT)
+                .getResultList();
+
+        boolean hayMas = filas.size() > tope;
+        List<TiendaSincronizada> tiendas = new ArrayList<>(Math.min(filas.size(), tope));
+        for (Object[] fila : filas.subList(0, Math.min(filas.size(), tope))) {
+            Instant eliminadaEn = (Instant) fila[7];
+            tiendas.add(eliminadaEn != null
+                    ? TiendaSincronizada.eliminada((Integer) fila[0], (Long) fila[5], eliminadaEn)
+                    : new TiendaSincronizada((Integer) fila[0], (String) fila[1], (String) fila[2],
+                            (Double) fila[3], (Double) fila[4], (Long) fila[5], (Instant) fila[6], null));
+        }
+        if (tiendas.isEmpty()) {
+            return new LoteSincronizacion(tiendas, desde, despuesDe, false);
+        }
+        TiendaSincronizada ultima = tiendas.get(tiendas.size() - 1);
+        return new LoteSincronizacion(tiendas, ultima.modificadaEn(), ultima.idTienda(), hayMas);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void construirIndiceBusqueda() {
+        if (!indexarAlIniciar) {
+            return;
+        }
+        indiceBusqueda.limpiar();
+        indiceGeografico.limpiar();
+        streamAll(this::indexar);
+        log.info("Índice de búsqueda: {} tiendas indexadas, {} con coordenadas.",
+                indiceBusqueda.tamano(), indiceGeografico.tamano());
+    }
+
+    // Con la caché activa, sync ya agrupa los fallos por ID y se coordina con los evict; las
+    // lecturas compartidas cubren findById cuando la caché está desactivada (spring.cache.type=none).
+    // Lo leído llena ambas cachés y sale de una réplica, salvo que este proceso haya escrito la
+    // tienda hace poco: una réplica atrasada volvería a cachear la fila que se acaba de sacar.
+    @Cacheable(cacheNames = CacheConfig.TIENDAS, key = "#id", sync = true)
     public Tienda findById(Integer id) {
-        return tiendaRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException("Tienda no encontrada con ID: " + id));
+        TransactionTemplate plantilla = escritasRecientes.getIfPresent(id) == null ? lectura : transactionTemplate;
+        return lecturas.ejecutar(FIND_BY_ID, id, () -> plantilla
+                .execute(estado -> tiendaRepository.findById(id))
+                .orElseThrow(() -> new NoSuchElementException("Tienda no encontrada con ID: " + id)));
     }
 
-    public Tienda save(Tienda tienda) {
-        tiendaRepository.findByNombreAndDireccion(tienda.getNombre(), tienda.getDireccion())
-                .ifPresent(existing -> {
-                    throw new IllegalArgumentException("Ya existe una tienda con ese nombre y dirección");
-                });
+    // Para conciliar una escritura diferida recuperada del diario: se lee de la primaria, que ya
+    // tiene lo confirmado justo antes de una caída aunque una réplica aún no lo tenga.
+    public Optional<Tienda> findVigente(String nombre, String direccion) {
+        return transactionTemplate.execute(estado -> tiendaRepository.findByNombreAndDireccion(nombre, direccion));
+    }
 
-        return tiendaRepository.save(tienda);
+    @CachePut(cacheNames = CacheConfig.TIENDAS, key = "#result.idTienda", unless = "#result == null")
+    // La restricción única (nombre, direccion, vigente) detecta duplicados en el mismo INSERT;
+    // el flush inmediato hace que el conflicto llegue como DataIntegrityViolationException.
+    public Tienda save(Tienda tienda) {
+        validar(tienda);
+        tienda.setIdTienda(null);
+        tienda.setVersion(null);
+        Tienda guardada = tiendaRepository.saveAndFlush(tienda);
+        registrarCambio(CambioTienda.Tipo.CREADA, guardada.getIdTienda(), guardada);
+        indexar(guardada);
+        return guardada;
     }
 
+    @CacheEvict(cacheNames = CacheConfig.TIENDAS, key = "#id")
     public Tienda update(Integer id, Tienda tiendaActualizada) {
-        Tienda tienda = findById(id);
-        tienda.setNombre(tiendaActualizada.getNombre());
-        tienda.setDireccion(tiendaActualizada.getDireccion());
-        return tiendaRepository.save(tienda);
+        return update(id, tiendaActualizada, null);
     }
 
+    // Con If-Match la versión nueva es la esperada más uno y basta el UPDATE; sin él se relee la
+    // fila escrita en la misma transacción para devolverla con su versión.
+    @CacheEvict(cacheNames = CacheConfig.TIENDAS, key = "#id")
+    public Tienda update(Integer id, Tienda tiendaActualizada, Long versionEsperada) {
+        validar(tiendaActualizada);
+        Tienda actualizada = transactionTemplate.execute(estado -> {
+            int filas = tiendaRepository.actualizar(id, tiendaActualizada.getNombre(), tiendaActualizada.getDireccion(),
+                    tiendaActualizada.getLatitud(), tiendaActualizada.getLongitud(), versionEsperada, Instant.now());
+            verificarFilaAfectada(filas, id, versionEsperada);
+            return versionEsperada == null ? releer(id)
+                    : new Tienda(id, tiendaActualizada.getNombre(), tiendaActualizada.getDireccion(),
+                            tiendaActualizada.getLatitud(), tiendaActualizada.getLongitud(), versionEsperada + 1);
+        });
+        desalojar(id);
+        registrarCambio(CambioTienda.Tipo.ACTUALIZADA, id, actualizada);
+        indexar(actualizada);
+        return actualizada;
+    }
+
+    // Como update, pero los campos null conservan su valor; las coordenadas se cambian juntas. Si la
+    // copia del índice de búsqueda está en la versión esperada, el resultado se arma con ella.
+    @CacheEvict(cacheNames = CacheConfig.TIENDAS, key = "#id")
+    public Tienda actualizarCampos(Integer id, Tienda campos, Long versionEsperada) {
+        if (campos.getDireccion() != null) {
+            validarDireccion(campos.getDireccion());
+        }
+        validarCoordenadas(campos);
+        Tienda actualizada = transactionTemplate.execute(estado -> {
+            int filas = tiendaRepository.actualizarCampos(id, campos.getNombre(), campos.getDireccion(),
+                    campos.getLatitud(), campos.getLongitud(), versionEsperada, Instant.now());
+            verificarFilaAfectada(filas, id, versionEsperada);
+            Tienda anterior = versionEsperada == null ? null : indiceBusqueda.obtener(id);
+            if (anterior == null || !versionEsperada.equals(anterior.getVersion())) {
+                return releer(id);
+            }
+            if (campos.getNombre() != null) {
+                anterior.setNombre(campos.getNombre());
+            }
+            if (campos.getDireccion() != null) {
+                anterior.setDireccion(campos.getDireccion());
+            }
+            if (campos.getLatitud() != null) {
+                anterior.setLatitud(campos.getLatitud());
+            }
+            if (campos.getLongitud() != null) {
+                anterior.setLongitud(campos.getLongitud());
+            }
+            anterior.setVersion(versionEsperada + 1);
+            return anterior;
+        });
+        desalojar(id);
+        registrarCambio(CambioTienda.Tipo.ACTUALIZADA, id, actualizada);
+        indexar(actualizada);
+        return actualizada;
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.TIENDAS, key = "#id")
     public void delete(Integer id) {
-        Tienda tienda = findById(id);
-        tiendaRepository.delete(tienda);
+        delete(id, null);
+    }
+
+    // La lápida no se puede quedar en la caché de segundo nivel: @SQLRestriction solo filtra SQL.
+    @CacheEvict(cacheNames = CacheConfig.TIENDAS, key = "#id")
+    public void delete(Integer id, Long versionEsperada) {
+        transactionTemplate.executeWithoutResult(estado -> verificarFilaAfectada(
+                tiendaRepository.eliminar(id, versionEsperada, Instant.now()), id, versionEsperada));
+        desalojar(id);
+        registrarCambio(CambioTienda.Tipo.ELIMINADA, id, null);
+        desindexar(id);
+    }
+
+    // Sin filas afectadas: 412 si la tienda sigue vigente en otra versión, 404 si no existe
+    private void verificarFilaAfectada(int filas, Integer id, Long versionEsperada) {
+        if (filas > 0) {
+            return;
+        }
+        if (versionEsperada != null && tiendaRepository.existsById(id)) {
+            throw new OptimisticLockingFailureException("La tienda " + id + " ya no está en la versión " + versionEsperada);
+        }
+        throw new NoSuchElementException("Tienda no encontrada con ID: " + id);
+    }
+
+    private Tienda releer(Integer id) {
+        return tiendaRepository.releer(id)
+                .orElseThrow(() -> new NoSuchElementException("Tienda no encontrada con ID: " + id));
+    }
+
+    // Las escrituras nativas usan un espacio de consulta propio, así que Hibernate no toca la caché
+    // de segundo nivel: se desaloja aquí solo la tienda escrita.
+    private void desalojar(Integer id) {
+        entityManager.getEntityManagerFactory().getCache().evict(Tienda.class, id);
+    }
+
+    // Una tienda puede no tener coordenadas, pero si trae una tiene que traer las dos y en rango.
+    public static String errorCoordenadas(Double latitud, Double longitud) {
+        if ((latitud == null && longitud == null) || TiendaIndiceGeografico.coordenadasValidas(latitud, longitud)) {
+            return null;
+        }
+        return "Latitud y longitud van juntas, con latitud entre -90 y 90 y longitud entre -180 y 180";
+    }
+
+    // La dirección es parte de la clave única (nombre, direccion, vigente), que no compara los NULL:
+    // sin dirección dos tiendas vigentes con el mismo nombre no chocarían.
+    public static String errorDireccion(String direccion) {
+        return direccion == null || direccion.isBlank() ? "La dirección de la tienda es obligatoria" : null;
+    }
+
+    private static void validar(Tienda tienda) {
+        validarDireccion(tienda.getDireccion());
+        validarCoordenadas(tienda);
+    }
+
+    private static void validarDireccion(String direccion) {
+        String error = errorDireccion(direccion);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private static void validarCoordenadas(Tienda tienda) {
+        String error = errorCoordenadas(tienda.getLatitud(), tienda.getLongitud());
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private void indexar(Tienda tienda) {
+        indiceBusqueda.indexar(tienda);
+        indiceGeografico.indexar(tienda);
+    }
+
+    private void desindexar(Integer id) {
+        indiceBusqueda.eliminar(id);
+        indiceGeografico.eliminar(id);
+    }
+
+    private void registrarCambio(CambioTienda.Tipo tipo, Integer id, Tienda tienda) {
+        escritasRecientes.put(id, Boolean.TRUE);
+        lecturas.invalidar(FIND_BY_ID, id);
+        lecturas.invalidar(FIND_ALL, TODAS);
+        cambios.publicar(tipo, id, tienda);
+    }
+
+    public List<ResultadoLote> crearEnLote(Iterator<Tienda> tiendas) {
+        return procesarEnLotes(tiendas, this::crearLote);
+    }
+
+    public List<ResultadoLote> actualizarEnLote(Iterator<Tienda> tiendas) {
+        return procesarEnLotes(tiendas, this::actualizarLote);
+    }
+
+    public List<ResultadoLote> eliminarEnLote(Iterator<Integer> ids) {
+        return procesarEnLotes(ids, this::eliminarLote);
+    }
+
+    // Igual que crearEnLote, pero sin acumular resultados: tras cada lote se informa el avance
+    // y solo las filas rechazadas, así la memoria no depende del tamaño del archivo.
+    public void importar(Iterator<Tienda> tiendas, Consumer<ProgresoImportacion> progreso) {
+        long[] totales = new long[2];
+        int[] lotes = new int[1];
+        procesarEnLotes(tiendas, this::crearLote, procesados -> {
+            List<ResultadoLote> errores = new ArrayList<>();
+            for (ResultadoLote resultado : procesados) {
+                if (resultado.estado() == ResultadoLote.Estado.CREADA) {
+                    totales[1]++;
+                } else {
+                    errores.add(resultado);
+                }
+            }
+            totales[0] += procesados.size();
+            progreso.accept(new ProgresoImportacion(++lotes[0], totales[0], totales[1], errores, null));
+        });
+    }
+
+    private <T> List<ResultadoLote> procesarEnLotes(Iterator<T> elementos,
+            BiFunction<List<T>, Integer, List<ResultadoLote>> procesador) {
+        List<ResultadoLote> resultados = new ArrayList<>();
+        procesarEnLotes(elementos, procesador, resultados::addAll);
+        return resultados;
+    }
+
+    // Cada lote se procesa en su propia transacción; los INSERT/UPDATE se agrupan
+    // en batches JDBC gracias a hibernate.jdbc.batch_size y al id por secuencia.
+    private <T> void procesarEnLotes(Iterator<T> elementos,
+            BiFunction<List<T>, Integer, List<ResultadoLote>> procesador,
+            Consumer<List<ResultadoLote>> alConfirmar) {
+        List<T> lote = new ArrayList<>(TAMANO_LOTE);
+        int desde = 0;
+        while (elementos.hasNext()) {
+            lote.add(elementos.next());
+            if (lote.size() == TAMANO_LOTE || !elementos.hasNext()) {
+                List<ResultadoLote> procesados = procesarLote(lote, desde, procesador);
+                invalidarCache(procesados);
+                alConfirmar.accept(procesados);
+                desde += lote.size();
+                lote = new ArrayList<>(TAMANO_LOTE);
+            }
+        }
+    }
+
+    // Una restricción violada al confirmar revierte el lote entero; se repite entonces de a un
+    // elemento para que solo los culpables queden rechazados y el resto se confirme.
+    private <T> List<ResultadoLote> procesarLote(List<T> lote, int desde,
+            BiFunction<List<T>, Integer, List<ResultadoLote>> procesador) {
+        try {
+            return transactionTemplate.execute(status -> procesador.apply(lote, desde));
+        } catch (DataIntegrityViolationException ex) {
+            List<ResultadoLote> resultados = new ArrayList<>(lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                final int indice = desde + i;
+                final List<T> uno = List.of(lote.get(i));
+                try {
+                    resultados.addAll(transactionTemplate.execute(status -> procesador.apply(uno, indice)));
+                } catch (DataIntegrityViolationException violacion) {
+                    resultados.add(rechazada(indice, idDe(lote.get(i)), violacion));
+                }
+            }
+            return resultados;
+        }
+    }
+
+    // SQLState 23505 es la violación de unicidad en Postgres y en H2; el resto (CHECK, NOT NULL,
+    // valor demasiado largo) son datos que la base de datos no acepta.
+    static ResultadoLote rechazada(int indice, Integer idTienda, DataIntegrityViolationException ex) {
+        Throwable causa = ex;
+        while (causa != null && !(causa instanceof SQLException)) {
+            causa = causa.getCause();
+        }
+        if (causa instanceof SQLException sql && VIOLACION_UNICIDAD.equals(sql.getSQLState())) {
+            return ResultadoLote.error(indice, idTienda, ResultadoLote.Estado.DUPLICADA,
+                    "Ya existe una tienda con ese nombre y dirección");
+        }
+        return ResultadoLote.error(indice, idTienda, ResultadoLote.Estado.INVALIDA,
+                "La base de datos rechazó los datos de la tienda");
+    }
+
+    private static Integer idDe(Object elemento) {
+        if (elemento instanceof Tienda tienda) {
+            return tienda.getIdTienda();
+        }
+        return elemento instanceof Integer id ? id : null;
+    }
+
+    private List<ResultadoLote> crearLote(List<Tienda> lote, int desde) {
+        Set<String> nombres = new HashSet<>();
+        for (Tienda tienda : lote) {
+            if (tienda != null && tienda.getNombre() != null) {
+                nombres.add(tienda.getNombre());
+            }
+        }
+
+        Set<List<String>> existentes = new HashSet<>();
+        if (!nombres.isEmpty()) {
+            for (Tienda existente : tiendaRepository.findByNombreIn(nombres)) {
+                existentes.add(clave(existente));
+            }
+        }
+
+        ResultadoLote[] resultados = new ResultadoLote[lote.size()];
+        List<Tienda> nuevas = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+        for (int i = 0; i < lote.size(); i++) {
+            Tienda tienda = lote.get(i);
+            if (tienda == null || tienda.getNombre() == null || tienda.getNombre().isBlank()) {
+                resultados[i] = ResultadoLote.error(desde + i, null, ResultadoLote.Estado.INVALIDA,
+                        "El nombre de la tienda es obligatorio");
+            } else if (errorDireccion(tienda.getDireccion()) != null) {
+                resultados[i] = ResultadoLote.error(desde + i, null, ResultadoLote.Estado.INVALIDA,
+                        errorDireccion(tienda.getDireccion()));
+            } else if (errorCoordenadas(tienda.getLatitud(), tienda.getLongitud()) != null) {
+                resultados[i] = ResultadoLote.error(desde + i, null, ResultadoLote.Estado.INVALIDA,
+                        errorCoordenadas(tienda.getLatitud(), tienda.getLongitud()));
+            } else if (!existentes.add(clave(tienda))) {
+                resultados[i] = ResultadoLote.error(desde + i, null, ResultadoLote.Estado.DUPLICADA,
+                        "Ya existe una tienda con ese nombre y dirección");
+            } else {
+                tienda.setIdTienda(null);
+                tienda.setVersion(null);
+                nuevas.add(tienda);
+                posiciones.add(i);
+            }
+        }
+
+        List<Tienda> guardadas = tiendaRepository.saveAll(nuevas);
+        despuesDeConfirmar(() -> guardadas.forEach(t -> {
+            registrarCambio(CambioTienda.Tipo.CREADA, t.getIdTienda(), t);
+            indexar(t);
+        }));
+        for (int j = 0; j < guardadas.size(); j++) {
+            int i = posiciones.get(j);
+            resultados[i] = ResultadoLote.ok(desde + i, guardadas.get(j).getIdTienda(), ResultadoLote.Estado.CREADA);
+        }
+        return Arrays.asList(resultados);
+    }
+
+    private List<ResultadoLote> actualizarLote(List<Tienda> lote, int desde) {
+        Set<Integer> ids = new HashSet<>();
+        for (Tienda tienda : lote) {
+            if (tienda != null && tienda.getIdTienda() != null) {
+                ids.add(tienda.getIdTienda());
+            }
+        }
+
+        Map<Integer, Tienda> existentes = new HashMap<>();
+        for (Tienda existente : tiendaRepository.findAllById(ids)) {
+            existentes.put(existente.getIdTienda(), existente);
+        }
+
+        List<Tienda> actualizadas = new ArrayList<>();
+        List<ResultadoLote> resultados = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            Tienda tienda = lote.get(i);
+            Tienda existente = tienda == null || tienda.getIdTienda() == null ? null : existentes.get(tienda.getIdTienda());
+            if (tienda == null || tienda.getIdTienda() == null) {
+                resultados.add(ResultadoLote.error(desde + i, null, ResultadoLote.Estado.INVALIDA,
+                        "El ID de la tienda es obligatorio"));
+            } else if (tienda.getNombre() == null || tienda.getNombre().isBlank()) {
+                resultados.add(ResultadoLote.error(desde + i, tienda.getIdTienda(), ResultadoLote.Estado.INVALIDA,
+                        "El nombre de la tienda es obligatorio"));
+            } else if (errorDireccion(tienda.getDireccion()) != null) {
+                resultados.add(ResultadoLote.error(desde + i, tienda.getIdTienda(), ResultadoLote.Estado.INVALIDA,
+                        errorDireccion(tienda.getDireccion())));
+            } else if (errorCoordenadas(tienda.getLatitud(), tienda.getLongitud()) != null) {
+                resultados.add(ResultadoLote.error(desde + i, tienda.getIdTienda(), ResultadoLote.Estado.INVALIDA,
+                        errorCoordenadas(tienda.getLatitud(), tienda.getLongitud())));
+            } else if (existente == null) {
+                resultados.add(ResultadoLote.error(desde + i, tienda.getIdTienda(), ResultadoLote.Estado.NO_ENCONTRADA,
+                        "Tienda no encontrada con ID: " + tienda.getIdTienda()));
+            } else {
+                existente.setNombre(tienda.getNombre());
+                existente.setDireccion(tienda.getDireccion());
+                existente.setLatitud(tienda.getLatitud());
+                existente.setLongitud(tienda.getLongitud());
+                actualizadas.add(existente);
+                resultados.add(ResultadoLote.ok(desde + i, existente.getIdTienda(), ResultadoLote.Estado.ACTUALIZADA));
+            }
+        }
+        despuesDeConfirmar(() -> actualizadas.forEach(t -> {
+            registrarCambio(CambioTienda.Tipo.ACTUALIZADA, t.getIdTienda(), t);
+            indexar(t);
+        }));
+        return resultados;
+    }
+
+    private List<ResultadoLote> eliminarLote(List<Integer> lote, int desde) {
+        Instant ahora = Instant.now();
+        Set<Integer> existentes = new HashSet<>();
+        for (Tienda tienda : tiendaRepository.findAllById(
+                lote.stream().filter(Objects::nonNull).collect(Collectors.toSet()))) {
+            tienda.setEliminadaEn(ahora);
+            existentes.add(tienda.getIdTienda());
+        }
+        tiendaRepository.flush();
+        despuesDeConfirmar(() -> existentes.forEach(id -> {
+            desalojar(id);
+            registrarCambio(CambioTienda.Tipo.ELIMINADA, id, null);
+            desindexar(id);
+        }));
+
+        List<ResultadoLote> resultados = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            Integer id = lote.get(i);
+            if (id != null && existentes.contains(id)) {
+                resultados.add(ResultadoLote.ok(desde + i, id, ResultadoLote.Estado.ELIMINADA));
+            } else {
+                resultados.add(ResultadoLote.error(desde + i, id, ResultadoLote.Estado.NO_ENCONTRADA,
+                        "Tienda no encontrada con ID: " + id));
+            }
+        }
+        return resultados;
+    }
+
+    private static void despuesDeConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    private void invalidarCache(List<ResultadoLote> resultados) {
+        Cache cache = cacheManager.getCache(CacheConfig.TIENDAS);
+        for (ResultadoLote resultado : resultados) {
+            if (resultado.estado() == ResultadoLote.Estado.ACTUALIZADA
+                    || resultado.estado() == ResultadoLote.Estado.ELIMINADA) {
+                cache.evict(resultado.idTienda());
+            }
+        }
+    }
+
+    private static List<String> clave(Tienda tienda) {
+        return Arrays.asList(tienda.getNombre(), tienda.getDireccion());
     }
 }
@@ -0,0 +1,15 @@
+-- Esquema inicial de tienda. Es idempotente para poder aplicarse sobre bases creadas
+-- antes con ddl-auto=update (baseline-version=0 hace que se ejecute también allí).
+CREATE SEQUENCE IF NOT EXISTS tienda_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE tienda_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS tienda (
+    id_tienda INTEGER NOT NULL,
+    nombre VARCHAR(255) NOT NULL,
+    direccion VARCHAR(500),
+    version BIGINT DEFAULT 0 NOT NULL,
+    CONSTRAINT tienda_pkey PRIMARY KEY (id_tienda),
+    CONSTRAINT uk_tienda_nombre_direccion UNIQUE (nombre, direccion)
+);
+
+ALTER TABLE tienda ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,7 @@
+ALTER TABLE tienda ADD COLUMN IF NOT EXISTS latitud DOUBLE PRECISION;
+ALTER TABLE tienda ADD COLUMN IF NOT EXISTS longitud DOUBLE PRECISION;
+
+ALTER TABLE tienda DROP CONSTRAINT IF EXISTS ck_tienda_latitud;
+ALTER TABLE tienda ADD CONSTRAINT ck_tienda_latitud CHECK (latitud BETWEEN -90 AND 90);
+ALTER TABLE tienda DROP CONSTRAINT IF EXISTS ck_tienda_longitud;
+ALTER TABLE tienda ADD CONSTRAINT ck_tienda_longitud CHECK (longitud BETWEEN -180 AND 180);
@@ -0,0 +1,15 @@
+-- Borrado lógico: las eliminadas quedan como lápidas (eliminada_en) hasta que PurgaTiendas las
+-- borra. modificada_en ordena la sincronización incremental, lápidas incluidas.
+ALTER TABLE tienda ADD COLUMN IF NOT EXISTS modificada_en TIMESTAMP WITH TIME ZONE DEFAULT now() NOT NULL;
+ALTER TABLE tienda ADD COLUMN IF NOT EXISTS eliminada_en TIMESTAMP WITH TIME ZONE;
+
+-- Una tienda eliminada no debe impedir crear otra con el mismo nombre y dirección
+ALTER TABLE tienda DROP CONSTRAINT IF EXISTS uk_tienda_nombre_direccion;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_tienda_nombre_direccion ON tienda (nombre, direccion) WHERE eliminada_en IS NULL;
+
+-- Paginación por ID de las vigentes, sin recorrer lápidas
+CREATE INDEX IF NOT EXISTS ix_tienda_vigente_id ON tienda (id_tienda) WHERE eliminada_en IS NULL;
+-- /sync: rango por (modificada_en, id_tienda)
+CREATE INDEX IF NOT EXISTS ix_tienda_modificada_en ON tienda (modificada_en, id_tienda);
+-- Purga: solo indexa las lápidas
+CREATE INDEX IF NOT EXISTS ix_tienda_eliminada_en ON tienda (eliminada_en) WHERE eliminada_en IS NOT NULL;
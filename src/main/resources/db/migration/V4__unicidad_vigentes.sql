@@ -0,0 +1,10 @@
+-- vigente es TRUE en las tiendas vigentes y NULL en las lápidas. La unicidad de (nombre, direccion,
+-- vigente) equivale al índice parcial de V3 pero es una restricción normal, la misma que declara la
+-- entidad y crea ddl-auto en cualquier base (H2 no tiene índices parciales).
+ALTER TABLE tienda ADD COLUMN IF NOT EXISTS vigente BOOLEAN;
+UPDATE tienda SET vigente = TRUE WHERE eliminada_en IS NULL;
+UPDATE tienda SET vigente = NULL WHERE eliminada_en IS NOT NULL;
+
+DROP INDEX IF EXISTS uk_tienda_nombre_direccion;
+ALTER TABLE tienda DROP CONSTRAINT IF EXISTS uk_tienda_nombre_direccion_vigente;
+ALTER TABLE tienda ADD CONSTRAINT uk_tienda_nombre_direccion_vigente UNIQUE (nombre, direccion, vigente);
@@ -0,0 +1,12 @@
+-- La restricción (nombre, direccion, vigente) no compara los NULL: con direccion NULL dos tiendas
+-- vigentes con el mismo nombre convivían. Las filas sin dirección pasan a '' y la columna es
+-- obligatoria. Si al hacerlo chocan vigentes solo la de menor ID sigue marcada, como en V4.
+UPDATE tienda t SET vigente = NULL
+WHERE t.direccion IS NULL AND t.vigente = TRUE
+  AND (EXISTS (SELECT 1 FROM tienda o
+               WHERE o.nombre = t.nombre AND o.direccion = '' AND o.vigente = TRUE)
+    OR EXISTS (SELECT 1 FROM tienda o
+               WHERE o.nombre = t.nombre AND o.direccion IS NULL AND o.vigente = TRUE
+                 AND o.id_tienda < t.id_tienda));
+UPDATE tienda SET direccion = '' WHERE direccion IS NULL;
+ALTER TABLE tienda ALTER COLUMN direccion SET NOT NULL;
@@ -0,0 +1,38 @@
+-- Solo para esquemas de ddl-auto (sin Flyway); se ejecuta después de que Hibernate actualiza la
+-- tabla y debe poder repetirse en cada arranque. Las migraciones hacen lo mismo en V3, V4 y V5.
+
+-- La restricción completa de antes del borrado lógico: con ella una lápida impide volver a crear
+-- la misma tienda. La reemplaza uk_tienda_nombre_direccion_vigente, que crea ddl-auto.
+ALTER TABLE tienda DROP CONSTRAINT IF EXISTS uk_tienda_nombre_direccion;
+
+-- Filas anteriores a la columna vigente. Si ya hay duplicados vigentes solo se marca la de menor ID
+-- para no fallar el arranque; las demás quedan fuera de la restricción hasta que se corrijan.
+UPDATE tienda t SET vigente = TRUE
+WHERE t.eliminada_en IS NULL AND t.vigente IS NULL
+  AND NOT EXISTS (SELECT 1 FROM tienda o
+                  WHERE o.nombre = t.nombre AND o.direccion = t.direccion
+                    AND o.vigente = TRUE AND o.id_tienda <> t.id_tienda)
+  AND NOT EXISTS (SELECT 1 FROM tienda o
+                  WHERE o.nombre = t.nombre AND o.direccion = t.direccion
+                    AND o.eliminada_en IS NULL AND o.vigente IS NULL AND o.id_tienda < t.id_tienda);
+
+-- Filas sin dirección, anteriores a que fuera obligatoria: pasan a '' igual que en V5, y si con
+-- ello chocan vigentes solo queda marcada la de menor ID. ddl-auto no cambia la nulabilidad de una
+-- columna existente.
+UPDATE tienda t SET vigente = NULL
+WHERE t.direccion IS NULL AND t.vigente = TRUE
+  AND (EXISTS (SELECT 1 FROM tienda o
+               WHERE o.nombre = t.nombre AND o.direccion = '' AND o.vigente = TRUE)
+    OR EXISTS (SELECT 1 FROM tienda o
+               WHERE o.nombre = t.nombre AND o.direccion IS NULL AND o.vigente = TRUE
+                 AND o.id_tienda < t.id_tienda));
+UPDATE tienda SET direccion = '' WHERE direccion IS NULL;
+ALTER TABLE tienda ALTER COLUMN direccion SET NOT NULL;
+
+-- Filas escritas sin modificada_en (el sembrador lo omitía y ddl-auto no da valor por defecto):
+-- sin él /sync nunca las devuelve. Las lápidas toman la hora de su eliminación.
+UPDATE tienda SET modificada_en = COALESCE(eliminada_en, CURRENT_TIMESTAMP) WHERE modificada_en IS NULL;
+
+-- El ETag de la colección es max(modificada_en) y /sync recorre por modificada_en; sin el índice
+-- de V3 ambos recorren la tabla entera.
+CREATE INDEX IF NOT EXISTS ix_tienda_modificada_en ON tienda (modificada_en, id_tienda);
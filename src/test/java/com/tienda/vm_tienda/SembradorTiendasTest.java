@@ -0,0 +1,36 @@
+package com.tienda.vm_tienda;
+
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SembradorTiendasTest {
+
+    @Test
+    void testGenerarLoteEsDeterminista() {
+        List<Tienda> primera = SembradorTiendas.generarLote(42, 7, 7000, 100);
+        List<Tienda> segunda = SembradorTiendas.generarLote(42, 7, 7000, 100);
+
+        assertEquals(primera, segunda);
+        assertNotEquals(primera, SembradorTiendas.generarLote(43, 7, 7000, 100));
+    }
+
+    @Test
+    void testGenerarLoteNombresUnicosEntreLotes() {
+        Set<String> nombres = new HashSet<>();
+        for (int lote = 0; lote < 5; lote++) {
+            for (Tienda tienda : SembradorTiendas.generarLote(42, lote, lote * 200L, 200)) {
+                assertNull(tienda.getIdTienda());
+                assertTrue(tienda.getNombre().length() <= 255);
+                assertTrue(nombres.add(tienda.getNombre()));
+            }
+        }
+        assertEquals(1000, nombres.size());
+    }
+}
@@ -0,0 +1,65 @@
+package com.tienda.vm_tienda.assembler;
+
+import com.tienda.vm_tienda.controller.TiendaController;
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+
+public class TiendaModelAssemblerTest {
+
+    private final TiendaModelAssembler assembler = new TiendaModelAssembler();
+
+    @BeforeEach
+    void crearRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", TiendaController.RUTA);
+        request.setServerPort(8800);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void limpiarRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testToModelGeneraLosMismosEnlacesQueMethodOn() {
+        Tienda tienda = new Tienda(5, "Tienda A", "Dirección A");
+
+        EntityModel<Tienda> modelo = assembler.toModel(tienda);
+
+        assertEquals(linkTo(methodOn(TiendaController.class).getTiendaById(5, null)).toUri().toString(),
+                modelo.getRequiredLink(IanaLinkRelations.SELF).getHref());
+        assertEquals(linkTo(methodOn(TiendaController.class).actualizarTienda(5, null, null)).toUri().toString(),
+                modelo.getRequiredLink("actualizar").getHref());
+        assertEquals(linkTo(methodOn(TiendaController.class).eliminarTienda(5, null)).toUri().toString(),
+                modelo.getRequiredLink("eliminar").getHref());
+        assertEquals(linkTo(TiendaController.class).toUri().toString(),
+                modelo.getRequiredLink("tiendas").getHref());
+    }
+
+    @Test
+    void testBaseUriSeResuelveUnaVezPorRequest() {
+        String primera = assembler.baseUri();
+        String segunda = assembler.baseUri();
+
+        assertSame(primera, segunda);
+        assertEquals("http://localhost:8800" + TiendaController.RUTA, primera);
+    }
+
+    @Test
+    void testBaseUriSinRequestEsRelativa() {
+        RequestContextHolder.resetRequestAttributes();
+
+        assertEquals(TiendaController.RUTA, assembler.baseUri());
+    }
+}
@@ -0,0 +1,86 @@
+package com.tienda.vm_tienda.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prueba de carga para GET /api/v1/tiendas/{id} contra una instancia en ejecución.
+// Comparar el perfil por defecto con el perfil "virtual":
+//   java -cp target/test-classes com.tienda.vm_tienda.benchmark.CargaGetTiendaById \
+//        http://localhost:8800 1 100 200 30
+// argumentos: urlBase idMinimo idMaximo clientesConcurrentes segundos
+// Los 429/503 del limitador se cuentan aparte; para medir sin él: --tienda.limite.habilitado=false
+public class CargaGetTiendaById {
+
+    public static void main(String[] args) throws Exception {
+        String urlBase = args.length > 0 ? args[0] : "http://localhost:8800";
+        int idMinimo = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int idMaximo = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int clientes = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        int segundos = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(clientes))
+                .build();
+        AtomicLong correctas = new AtomicLong();
+        AtomicLong fallidas = new AtomicLong();
+        AtomicLong rechazadas = new AtomicLong();
+        List<Long> latencias = Collections.synchronizedList(new ArrayList<>());
+        long fin = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(clientes);
+        for (int i = 0; i < clientes; i++) {
+            hilos.submit(() -> {
+                while (System.nanoTime() < fin) {
+                    int id = ThreadLocalRandom.current().nextInt(idMinimo, idMaximo + 1);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(urlBase + "/api/v1/tiendas/" + id))
+                            .timeout(Duration.ofSeconds(10))
+                            .GET()
+                            .build();
+                    long inicio = System.nanoTime();
+                    try {
+                        HttpResponse<Void> respuesta = cliente.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencias.add(System.nanoTime() - inicio);
+                        if (respuesta.statusCode() == 429 || respuesta.statusCode() == 503) {
+                            rechazadas.incrementAndGet();
+                        } else if (respuesta.statusCode() < 500) {
+                            correctas.incrementAndGet();
+                        } else {
+                            fallidas.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        fallidas.incrementAndGet();
+                    }
+                }
+            });
+        }
+        hilos.shutdown();
+        hilos.awaitTermination(segundos + 30L, TimeUnit.SECONDS);
+
+        List<Long> ordenadas = new ArrayList<>(latencias);
+        Collections.sort(ordenadas);
+        System.out.printf("Peticiones correctas: %d, rechazadas: %d, fallidas: %d%n",
+                correctas.get(), rechazadas.get(), fallidas.get());
+        System.out.printf("Rendimiento: %.1f req/s%n", correctas.get() / (double) segundos);
+        if (!ordenadas.isEmpty()) {
+            System.out.printf("Latencia p50: %.2f ms, p99: %.2f ms%n",
+                    percentil(ordenadas, 0.50) / 1e6, percentil(ordenadas, 0.99) / 1e6);
+        }
+        System.exit(0);
+    }
+
+    private static long percentil(List<Long> ordenadas, double p) {
+        return ordenadas.get(Math.min(ordenadas.size() - 1, (int) (ordenadas.size() * p)));
+    }
+}
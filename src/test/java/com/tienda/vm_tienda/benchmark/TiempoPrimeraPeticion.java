@@ -0,0 +1,79 @@
+package com.tienda.vm_tienda.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Mide el tiempo desde que se lanza el proceso hasta la primera respuesta 200 de la API.
+// Comparar el arranque normal con el del perfil prod + AOT + CDS (ver perfil Maven "aot"):
+//   java -cp target/test-classes com.tienda.vm_tienda.benchmark.TiempoPrimeraPeticion \
+//        5 http://localhost:8800/api/v1/tiendas/summary?limit=1 \
+//        java -XX:SharedArchiveFile=target/rapido/application.jsa -Dspring.aot.enabled=true \
+//             -Dspring.profiles.active=prod -jar target/rapido/vm-tienda-0.0.1-SNAPSHOT.jar
+// argumentos: repeticiones url comando...
+public class TiempoPrimeraPeticion {
+
+    private static final long TIEMPO_MAXIMO_S = 120;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Uso: TiempoPrimeraPeticion repeticiones url comando...");
+            System.exit(1);
+        }
+        int repeticiones = Integer.parseInt(args[0]);
+        URI url = URI.create(args[1]);
+        List<String> comando = Arrays.asList(args).subList(2, args.length);
+
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest request = HttpRequest.newBuilder(url).timeout(Duration.ofSeconds(5)).GET().build();
+        List<Long> tiempos = new ArrayList<>();
+
+        for (int i = 1; i <= repeticiones; i++) {
+            long inicio = System.nanoTime();
+            Process proceso = new ProcessBuilder(comando).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            try {
+                long tiempo = esperarPrimeraRespuesta(cliente, request, proceso, inicio);
+                tiempos.add(tiempo);
+                System.out.printf("Arranque %d: %.0f ms%n", i, tiempo / 1e6);
+            } finally {
+                proceso.destroy();
+                if (!proceso.waitFor(30, TimeUnit.SECONDS)) {
+                    proceso.destroyForcibly().waitFor();
+                }
+            }
+        }
+
+        Collections.sort(tiempos);
+        System.out.printf("Tiempo hasta la primera petición: mínimo %.0f ms, mediana %.0f ms, máximo %.0f ms%n",
+                tiempos.get(0) / 1e6, tiempos.get(tiempos.size() / 2) / 1e6, tiempos.get(tiempos.size() - 1) / 1e6);
+    }
+
+    private static long esperarPrimeraRespuesta(HttpClient cliente, HttpRequest request, Process proceso, long inicio)
+            throws InterruptedException {
+        long limite = inicio + TimeUnit.SECONDS.toNanos(TIEMPO_MAXIMO_S);
+        while (System.nanoTime() < limite) {
+            if (!proceso.isAlive()) {
+                throw new IllegalStateException("El proceso terminó con código " + proceso.exitValue());
+            }
+            try {
+                HttpResponse<Void> respuesta = cliente.send(request, HttpResponse.BodyHandlers.discarding());
+                if (respuesta.statusCode() == 200) {
+                    return System.nanoTime() - inicio;
+                }
+            } catch (IOException ex) {
+                // Todavía no escucha
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("Sin respuesta tras " + TIEMPO_MAXIMO_S + " s");
+    }
+}
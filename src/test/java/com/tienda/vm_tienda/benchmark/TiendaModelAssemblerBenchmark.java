@@ -0,0 +1,98 @@
+package com.tienda.vm_tienda.benchmark;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+
+import com.tienda.vm_tienda.assembler.TiendaModelAssembler;
+import com.tienda.vm_tienda.controller.TiendaController;
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TiendaModelAssemblerBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int filas;
+
+    private List<Tienda> tiendas;
+    private TiendaModelAssembler assembler;
+
+    @Setup
+    public void preparar() {
+        tiendas = new ArrayList<>(filas);
+        for (int i = 1; i <= filas; i++) {
+            tiendas.add(new Tienda(i, "Tienda " + i, "Dirección " + i));
+        }
+        assembler = new TiendaModelAssembler();
+    }
+
+    @TearDown
+    public void limpiar() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public List<EntityModel<Tienda>> assemblerConMethodOn() {
+        nuevoRequest();
+        List<EntityModel<Tienda>> modelos = new ArrayList<>(tiendas.size());
+        for (Tienda tienda : tiendas) {
+            modelos.add(EntityModel.of(
+                tienda,
+                linkTo(methodOn(TiendaController.class).getTiendaById(tienda.getIdTienda(), null)).withSelfRel(),
+                linkTo(methodOn(TiendaController.class).getAllTiendas(null, null, null)).withRel("tiendas"),
+                linkTo(methodOn(TiendaController.class).actualizarTienda(tienda.getIdTienda(), null, null)).withRel("actualizar"),
+                linkTo(methodOn(TiendaController.class).eliminarTienda(tienda.getIdTienda(), null)).withRel("eliminar")
+            ));
+        }
+        return modelos;
+    }
+
+    @Benchmark
+    public List<EntityModel<Tienda>> assemblerConPlantilla() {
+        nuevoRequest();
+        List<EntityModel<Tienda>> modelos = new ArrayList<>(tiendas.size());
+        for (Tienda tienda : tiendas) {
+            modelos.add(assembler.toModel(tienda));
+        }
+        return modelos;
+    }
+
+    private static void nuevoRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", TiendaController.RUTA);
+        request.setServerPort(8800);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TiendaModelAssemblerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,105 @@
+package com.tienda.vm_tienda.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.tienda.vm_tienda.assembler.TiendaModelAssembler;
+import com.tienda.vm_tienda.config.FormatosConfig;
+import com.tienda.vm_tienda.controller.TiendaController;
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TiendaSerializacionBenchmark {
+
+    private static final String BASE = "http://localhost:8800" + TiendaController.RUTA;
+
+    @Param({"10", "1000", "100000"})
+    private int filas;
+
+    private CollectionModel<EntityModel<Tienda>> coleccion;
+    private ObjectWriter halWriter;
+    private ObjectWriter cborWriter;
+
+    @Setup
+    public void preparar() throws IOException {
+        TiendaModelAssembler assembler = new TiendaModelAssembler();
+        List<EntityModel<Tienda>> modelos = new ArrayList<>(filas);
+        for (int i = 1; i <= filas; i++) {
+            modelos.add(assembler.toModel(new Tienda(i, "Tienda " + i, "Dirección " + i), BASE));
+        }
+        coleccion = CollectionModel.of(modelos, Link.of(BASE).withSelfRel());
+        halWriter = halObjectMapper().writerFor(CollectionModel.class);
+        cborWriter = FormatosConfig.cborObjectMapper().writerFor(CollectionModel.class);
+
+        // JMH solo mide tiempo: los bytes en la red de cada formato se informan una vez por tamaño
+        System.out.printf("%nBytes con %d filas: hal=%d hal+gzip=%d cbor=%d cbor+gzip=%d%n", filas,
+                halWriter.writeValueAsBytes(coleccion).length, serializarHalGzip().length,
+                cborWriter.writeValueAsBytes(coleccion).length, serializarCborGzip().length);
+    }
+
+    @Benchmark
+    public byte[] serializarHal() throws Exception {
+        return halWriter.writeValueAsBytes(coleccion);
+    }
+
+    @Benchmark
+    public byte[] serializarHalGzip() throws IOException {
+        return gzip(halWriter, coleccion);
+    }
+
+    @Benchmark
+    public byte[] serializarCbor() throws Exception {
+        return cborWriter.writeValueAsBytes(coleccion);
+    }
+
+    @Benchmark
+    public byte[] serializarCborGzip() throws IOException {
+        return gzip(cborWriter, coleccion);
+    }
+
+    private static byte[] gzip(ObjectWriter writer, Object valor) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            writer.writeValue(gzip, valor);
+        }
+        return salida.toByteArray();
+    }
+
+    static ObjectMapper halObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+}
@@ -0,0 +1,96 @@
+package com.tienda.vm_tienda.benchmark;
+
+import com.tienda.vm_tienda.VmTiendaApplication;
+import com.tienda.vm_tienda.dto.ResultadoLote;
+import com.tienda.vm_tienda.model.Tienda;
+import com.tienda.vm_tienda.service.TiendaService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TiendaServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int filas;
+
+    private ConfigurableApplicationContext contexto;
+    private TiendaService tiendaService;
+    private final AtomicInteger secuencia = new AtomicInteger();
+    private int[] ids;
+
+    @Setup
+    public void iniciar() {
+        contexto = iniciarContextoH2();
+        tiendaService = contexto.getBean(TiendaService.class);
+
+        List<Tienda> tiendas = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            tiendas.add(new Tienda(null, "Tienda " + i, "Dirección " + i));
+        }
+        ids = tiendaService.crearEnLote(tiendas.iterator()).stream()
+                .mapToInt(ResultadoLote::idTienda)
+                .toArray();
+    }
+
+    @TearDown
+    public void detener() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<Tienda> findAll() {
+        return tiendaService.findAll();
+    }
+
+    @Benchmark
+    public Tienda findById() {
+        return tiendaService.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public Tienda save() {
+        int n = secuencia.incrementAndGet();
+        return tiendaService.save(new Tienda(null, "Tienda benchmark " + n, "Dirección " + n));
+    }
+
+    static ConfigurableApplicationContext iniciarContextoH2() {
+        return new SpringApplicationBuilder(VmTiendaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                    "--spring.profiles.active=benchmark",
+                    "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.hibernate.ddl-auto=create-drop",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                    "--spring.jpa.show-sql=false",
+                    "--spring.jpa.properties.hibernate.format_sql=false",
+                    "--logging.level.root=WARN"
+                );
+    }
+}
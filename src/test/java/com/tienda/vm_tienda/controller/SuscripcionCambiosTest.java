@@ -0,0 +1,39 @@
+package com.tienda.vm_tienda.controller;
+
+import com.tienda.vm_tienda.dto.CambioTienda;
+import com.tienda.vm_tienda.service.TiendaCambios;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuscripcionCambiosTest {
+
+    @Test
+    void testPoolSaturadoCortaAlSuscriptor() {
+        TiendaCambios cambios = new TiendaCambios(16);
+        AtomicBoolean completado = new AtomicBoolean();
+        SseEmitter emitter = new SseEmitter() {
+            @Override
+            public void complete() {
+                completado.set(true);
+            }
+        };
+        AtomicInteger intentos = new AtomicInteger();
+
+        new SuscripcionCambios(cambios, emitter, tarea -> {
+            intentos.incrementAndGet();
+            throw new RejectedExecutionException("Pool de envío lleno");
+        }, 0).iniciar();
+
+        assertTrue(completado.get());
+        // Ya no está suscrito: los cambios siguientes no vuelven a intentar programarlo
+        cambios.publicar(CambioTienda.Tipo.CREADA, 1, null);
+        assertEquals(1, intentos.get());
+    }
+}
@@ -1,24 +1,47 @@
 package com.tienda.vm_tienda.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.tienda.vm_tienda.assembler.TiendaModelAssembler;
+import com.tienda.vm_tienda.dto.CambioTienda;
+import com.tienda.vm_tienda.dto.EstadoEscritura;
+import com.tienda.vm_tienda.dto.LoteCambios;
+import com.tienda.vm_tienda.dto.ProgresoImportacion;
+import com.tienda.vm_tienda.dto.ResultadoLote;
+import com.tienda.vm_tienda.dto.TiendaCercana;
+import com.tienda.vm_tienda.dto.TiendaResumen;
 import com.tienda.vm_tienda.model.Tienda;
+import com.tienda.vm_tienda.service.EscrituraDiferida;
+import com.tienda.vm_tienda.service.TiendaCambios;
 import com.tienda.vm_tienda.service.TiendaService;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +58,15 @@ public class TiendaControllerTest {
     @MockitoBean
     private TiendaModelAssembler assembler;
 
+    @MockitoBean
+    private TiendaCambios cambios;
+
+    @MockitoBean
+    private EscrituraDiferida escrituraDiferida;
+
+    @MockitoBean
+    private EnvioCambios envioCambios;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -64,6 +96,266 @@ public class TiendaControllerTest {
         verify(tiendaService, times(1)).findAll();
     }
 
+    @Test
+    void testGetAllTiendasCbor() throws Exception {
+        Tienda tienda = new Tienda(1, "Tienda A", "Dirección A");
+
+        when(tiendaService.findAll()).thenReturn(List.of(tienda));
+        when(assembler.toModel(any(Tienda.class)))
+                .thenReturn(EntityModel.of(tienda, Link.of("http://localhost/api/v1/tiendas/1").withSelfRel()));
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/tiendas").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andReturn();
+
+        JsonNode cuerpo = new ObjectMapper(new CBORFactory()).readTree(resultado.getResponse().getContentAsByteArray());
+        assertThat(cuerpo.path("content").get(0).path("nombre").asText(), is("Tienda A"));
+        assertThat(cuerpo.path("content").get(0).has("links"), is(false));
+        assertThat(cuerpo.has("links"), is(false));
+    }
+
+    @Test
+    void testGetTiendasPaginadas() throws Exception {
+        Tienda tienda1 = new Tienda(11, "Tienda A", "Dirección A");
+        Tienda tienda2 = new Tienda(12, "Tienda B", "Dirección B");
+
+        when(tiendaService.findPage(10, 2)).thenReturn(List.of(tienda1, tienda2));
+        when(assembler.toModel(any(Tienda.class))).thenReturn(EntityModel.of(tienda1));
+
+        mockMvc.perform(get("/api/v1/tiendas").param("after", "10").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/hal+json"))
+                .andExpect(jsonPath("$._links.next.href", containsString("after=12")));
+
+        verify(tiendaService, times(1)).findPage(10, 2);
+        verify(tiendaService, never()).findAll();
+    }
+
+    @Test
+    void testGetTiendasPaginadasUltimaPagina() throws Exception {
+        when(tiendaService.findPage(12, 2)).thenReturn(List.of(new Tienda(13, "Tienda C", "Dirección C")));
+        when(assembler.toModel(any(Tienda.class))).thenReturn(EntityModel.of(new Tienda(13, "Tienda C", "Dirección C")));
+
+        mockMvc.perform(get("/api/v1/tiendas").param("after", "12").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @Test
+    void testGetResumenTiendas() throws Exception {
+        when(tiendaService.findResumenes(null, null, false)).thenReturn(List.of(
+                new TiendaResumen(1, "Tienda A"),
+                new TiendaResumen(2, "Tienda B")));
+
+        mockMvc.perform(get("/api/v1/tiendas/summary"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].idTienda").value(1))
+                .andExpect(jsonPath("$[0].nombre").value("Tienda A"))
+                .andExpect(jsonPath("$[0].direccion").doesNotExist())
+                .andExpect(jsonPath("$[0]._links").doesNotExist());
+
+        verify(tiendaService, never()).findAll();
+        verify(assembler, never()).toModel(any(Tienda.class));
+    }
+
+    @Test
+    void testGetResumenTiendasCamposYPagina() throws Exception {
+        when(tiendaService.findResumenes(10, 2, true)).thenReturn(List.of(
+                new TiendaResumen(11, "Tienda A", "Dirección A"),
+                new TiendaResumen(12, "Tienda B", "Dirección B")));
+
+        mockMvc.perform(get("/api/v1/tiendas/summary")
+                        .param("after", "10").param("limit", "2").param("fields", "idTienda,direccion"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].idTienda").value(12))
+                .andExpect(jsonPath("$[1].direccion").value("Dirección B"))
+                .andExpect(jsonPath("$[1].nombre").doesNotExist())
+                .andExpect(header().string("Link", allOf(containsString("after=12"), containsString("rel=\"next\""))));
+    }
+
+    @Test
+    void testGetResumenTiendasCampoInvalido() throws Exception {
+        mockMvc.perform(get("/api/v1/tiendas/summary").param("fields", "idTienda,version"))
+                .andExpect(status().isBadRequest());
+
+        verify(tiendaService, never()).findResumenes(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testStreamTiendas() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Tienda> consumer = invocation.getArgument(0);
+            consumer.accept(new Tienda(1, "Tienda A", "Dirección A"));
+            consumer.accept(new Tienda(2, "Tienda B", "Dirección B"));
+            return null;
+        }).when(tiendaService).streamAll(any());
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/tiendas/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"nombre\":\"Tienda A\"")))
+                .andExpect(content().string(containsString("\"nombre\":\"Tienda B\"")));
+
+        verify(tiendaService, never()).findAll();
+    }
+
+    @Test
+    void testExportarTiendasCsv() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Tienda> consumer = invocation.getArgument(0);
+            consumer.accept(new Tienda(1, "Tienda A", "Calle 1, Santiago", 0L));
+            consumer.accept(new Tienda(2, "Tienda \"B\"", "Dirección B", 3L));
+            return null;
+        }).when(tiendaService).streamAll(any());
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/tiendas/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition", containsString("tiendas.csv")))
+                .andExpect(content().string(startsWith("idTienda,nombre,direccion,latitud,longitud,version\n")))
+                .andExpect(content().string(containsString("\"Calle 1, Santiago\"")))
+                .andExpect(content().string(containsString("Tienda \"\"B\"\"")));
+
+        verify(tiendaService, never()).findAll();
+    }
+
+    @Test
+    void testExportarTiendasFormatoInvalido() throws Exception {
+        mockMvc.perform(get("/api/v1/tiendas/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testImportarTiendasCsv() throws Exception {
+        doAnswer(invocation -> {
+            Iterator<Tienda> tiendas = invocation.getArgument(0);
+            Consumer<ProgresoImportacion> progreso = invocation.getArgument(1);
+            List<String> nombres = new ArrayList<>();
+            tiendas.forEachRemaining(t -> nombres.add(t.getNombre() + "|" + t.getDireccion()));
+            assertThat(nombres, contains("Tienda A|Calle 1, Santiago", "Tienda B|Dirección B"));
+            progreso.accept(new ProgresoImportacion(1, 2, 1, List.of(
+                    ResultadoLote.error(1, null, ResultadoLote.Estado.DUPLICADA, "Ya existe una tienda con ese nombre y dirección")), null));
+            return null;
+        }).when(tiendaService).importar(any(), any());
+
+        MvcResult resultado = mockMvc.perform(post("/api/v1/tiendas/import")
+                        .contentType("text/csv")
+                        .content("nombre,direccion\nTienda A,\"Calle 1, Santiago\"\nTienda B,Dirección B\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"procesadas\":2")))
+                .andExpect(content().string(containsString("\"estado\":\"DUPLICADA\"")));
+    }
+
+    @Test
+    void testImportarTiendasArchivoInvalido() throws Exception {
+        doAnswer(invocation -> {
+            Iterator<Tienda> tiendas = invocation.getArgument(0);
+            tiendas.forEachRemaining(t -> { });
+            return null;
+        }).when(tiendaService).importar(any(), any());
+
+        MvcResult resultado = mockMvc.perform(post("/api/v1/tiendas/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"nombre\":\"Tienda A\"}\n{\"nombre\":"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Importación interrumpida")));
+    }
+
+    @Test
+    void testBuscarTiendas() throws Exception {
+        Tienda tienda = new Tienda(1, "Panadería Ñuñoa", "Dirección A");
+
+        when(tiendaService.buscar("panaderia", 0, 1))
+                .thenReturn(new PageImpl<>(List.of(tienda), PageRequest.of(0, 1), 3));
+        when(assembler.toModel(any(Tienda.class))).thenReturn(EntityModel.of(tienda));
+
+        mockMvc.perform(get("/api/v1/tiendas/search").param("q", "panaderia").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/hal+json"))
+                .andExpect(jsonPath("$.page.totalElements").value(3))
+                .andExpect(jsonPath("$._links.next.href", containsString("page=1")));
+
+        verify(tiendaService, times(1)).buscar("panaderia", 0, 1);
+        verify(tiendaService, never()).findAll();
+    }
+
+    @Test
+    void testGetTiendasCercanas() throws Exception {
+        when(tiendaService.cercanas(-33.44, -70.65, 2000, 5)).thenReturn(List.of(
+                new TiendaCercana(1, "Tienda A", "Dirección A", -33.4378, -70.6504, 250.5)));
+
+        mockMvc.perform(get("/api/v1/tiendas/near")
+                        .param("lat", "-33.44").param("lon", "-70.65").param("radius", "2000").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].idTienda").value(1))
+                .andExpect(jsonPath("$[0].distanciaMetros").value(250.5));
+    }
+
+    @Test
+    void testGetTiendasCercanasFueraDeRango() throws Exception {
+        mockMvc.perform(get("/api/v1/tiendas/near").param("lat", "95").param("lon", "-70.65"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/tiendas/near").param("lat", "-33.44").param("lon", "-70.65").param("radius", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(tiendaService, never()).cercanas(anyDouble(), anyDouble(), anyDouble(), any());
+    }
+
+    @Test
+    void testLeerCambiosDisponibles() throws Exception {
+        CambioTienda cambio = new CambioTienda(6, CambioTienda.Tipo.ELIMINADA, 3, null, Instant.now());
+        when(cambios.leerDesde(5, 100)).thenReturn(new LoteCambios(List.of(cambio), 6, false));
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/tiendas/changes")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("since", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ultimaSecuencia").value(6))
+                .andExpect(jsonPath("$.cambios[0].tipo").value("ELIMINADA"))
+                .andExpect(jsonPath("$.cambios[0].idTienda").value(3));
+
+        verify(cambios, never()).suscribir(any());
+        verify(tiendaService, never()).findAll();
+    }
+
+    @Test
+    void testLeerCambiosResincronizar() throws Exception {
+        when(cambios.leerDesde(1, 100)).thenReturn(new LoteCambios(List.of(), 5000, true));
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/tiendas/changes")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("since", "1"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.resincronizar").value(true));
+    }
+
     @Test
     void testGetTiendaById() throws Exception {
         Tienda tienda = new Tienda(1, "Tienda Test", "Dirección Test");
@@ -78,6 +370,67 @@ public class TiendaControllerTest {
         verify(tiendaService, times(1)).findById(1);
     }
 
+    @Test
+    void testGetTiendaByIdDevuelveEtag() throws Exception {
+        Tienda tienda = new Tienda(1, "Tienda Test", "Dirección Test", 4L);
+
+        when(tiendaService.findById(1)).thenReturn(tienda);
+        when(assembler.toModel(tienda)).thenReturn(EntityModel.of(tienda));
+
+        mockMvc.perform(get("/api/v1/tiendas/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    void testGetTiendaByIdNoModificada() throws Exception {
+        when(tiendaService.version(1)).thenReturn(4L);
+
+        mockMvc.perform(get("/api/v1/tiendas/1").header("If-None-Match", "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andExpect(content().string(""));
+
+        verify(tiendaService, never()).findById(1);
+        verify(assembler, never()).toModel(any(Tienda.class));
+    }
+
+    @Test
+    void testGetTiendaByIdEtagDistingueCbor() throws Exception {
+        Tienda tienda = new Tienda(1, "Tienda Test", "Dirección Test", 4L);
+        when(tiendaService.version(1)).thenReturn(4L);
+        when(tiendaService.findById(1)).thenReturn(tienda);
+        when(assembler.toModel(tienda))
+                .thenReturn(EntityModel.of(tienda, Link.of("http://localhost/api/v1/tiendas/1").withSelfRel()));
+
+        // El ETag de la representación JSON no sirve para la CBOR
+        MvcResult resultado = mockMvc.perform(get("/api/v1/tiendas/1").accept(MediaType.APPLICATION_CBOR)
+                        .header("If-None-Match", "\"4\""))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("ETag", "\"4-cbor\""))
+                .andReturn();
+
+        // Decodificado con un lector CBOR sin mixins: si escribiera el conversor por defecto habría enlaces
+        JsonNode cuerpo = new ObjectMapper(new CBORFactory()).readTree(resultado.getResponse().getContentAsByteArray());
+        assertThat(cuerpo.path("nombre").asText(), is("Tienda Test"));
+        assertThat(cuerpo.has("links"), is(false));
+        assertThat(cuerpo.has("_links"), is(false));
+
+        mockMvc.perform(get("/api/v1/tiendas/1").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"4-cbor\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testGetAllTiendasNoModificada() throws Exception {
+        when(tiendaService.versionColeccion()).thenReturn("abc-7");
+
+        mockMvc.perform(get("/api/v1/tiendas").header("If-None-Match", "\"tiendas-abc-7-null-null\""))
+                .andExpect(status().isNotModified());
+
+        verify(tiendaService, never()).findAll();
+    }
+
     @Test
     void testGetTiendaByIdNoEncontrada() throws Exception {
         when(tiendaService.findById(999)).thenThrow(new NoSuchElementException("Tienda no encontrada con ID: 999"));
@@ -135,10 +488,71 @@ public class TiendaControllerTest {
         verify(tiendaService, times(1)).save(any(Tienda.class));
     }
 
+    @Test
+    void testCrearTiendaAsincrona() throws Exception {
+        Tienda tienda = new Tienda(null, "Nueva Tienda", "Nueva Dirección");
+        EstadoEscritura pendiente = EstadoEscritura.pendiente("op-1", Instant.parse("2025-01-01T00:00:00Z"));
+
+        when(escrituraDiferida.encolar(any(Tienda.class), eq("clave-1"))).thenReturn(pendiente);
+
+        mockMvc.perform(post("/api/v1/tiendas")
+                .header("Prefer", "respond-async")
+                .header("Idempotency-Key", "clave-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(tienda)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", endsWith("/api/v1/tiendas/pending/op-1")))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.estado").value("PENDIENTE"));
+
+        verify(tiendaService, never()).save(any(Tienda.class));
+    }
+
+    @Test
+    void testCrearTiendaAsincronaClaveReutilizada() throws Exception {
+        when(escrituraDiferida.encolar(any(Tienda.class), eq("clave-1")))
+                .thenThrow(new IllegalArgumentException("La Idempotency-Key ya se usó con otra tienda"));
+
+        mockMvc.perform(post("/api/v1/tiendas")
+                .header("Prefer", "respond-async")
+                .header("Idempotency-Key", "clave-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Tienda(null, "Otra Tienda", "Dirección"))))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void testCrearTiendaAsincronaSinNombre() throws Exception {
+        mockMvc.perform(post("/api/v1/tiendas")
+                .header("Prefer", "respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Tienda(null, " ", "Dirección"))))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(escrituraDiferida);
+    }
+
+    @Test
+    void testGetEstadoEscritura() throws Exception {
+        EstadoEscritura creada = EstadoEscritura.pendiente("op-1", Instant.parse("2025-01-01T00:00:00Z"))
+                .resuelta(EstadoEscritura.Estado.CREADA, 42, null);
+
+        when(escrituraDiferida.estado("op-1")).thenReturn(creada);
+
+        mockMvc.perform(get("/api/v1/tiendas/pending/op-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Location", endsWith("/api/v1/tiendas/42")))
+                .andExpect(jsonPath("$.estado").value("CREADA"))
+                .andExpect(jsonPath("$.idTienda").value(42));
+
+        mockMvc.perform(get("/api/v1/tiendas/pending/otra"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testActualizarTienda() throws Exception {
         Tienda tiendaActualizada = new Tienda(null, "Tienda Modificada", "Dirección Modificada");
-        Tienda tiendaGuardada = new Tienda(1, "Tienda Modificada", "Dirección Modificada");
+        Tienda tiendaGuardada = new Tienda(1, "Tienda Modificada", "Dirección Modificada", 3L);
 
         when(tiendaService.update(eq(1), any(Tienda.class))).thenReturn(tiendaGuardada);
         when(assembler.toModel(tiendaGuardada)).thenReturn(EntityModel.of(tiendaGuardada));
@@ -147,7 +561,8 @@ public class TiendaControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(tiendaActualizada)))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType("application/hal+json"));
+                .andExpect(content().contentType("application/hal+json"))
+                .andExpect(header().string("ETag", "\"3\""));
 
         verify(tiendaService, times(1)).update(eq(1), any(Tienda.class));
     }
@@ -181,6 +596,60 @@ public class TiendaControllerTest {
         verify(tiendaService, times(1)).update(eq(1), any(Tienda.class));
     }
 
+    @Test
+    void testActualizarTiendaVersionObsoleta() throws Exception {
+        Tienda tienda = new Tienda(null, "Tienda", "Dirección");
+
+        when(tiendaService.update(eq(1), any(Tienda.class), eq(2L)))
+                .thenThrow(new OptimisticLockingFailureException("La tienda 1 está en la versión 3, no en la 2"));
+
+        mockMvc.perform(put("/api/v1/tiendas/1")
+                .header("If-Match", "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(tienda)))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(tiendaService, never()).update(eq(1), any(Tienda.class));
+    }
+
+    @Test
+    void testEliminarTiendaVersionObsoleta() throws Exception {
+        doThrow(new OptimisticLockingFailureException("La tienda 1 está en la versión 3, no en la 2"))
+                .when(tiendaService).delete(1, 2L);
+
+        mockMvc.perform(delete("/api/v1/tiendas/1").header("If-Match", "\"2\""))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(tiendaService, never()).delete(1);
+    }
+
+    @Test
+    void testModificarTienda() throws Exception {
+        when(tiendaService.actualizarCampos(eq(1), any(Tienda.class), eq(4L)))
+                .thenReturn(new Tienda(1, "Tienda", "Dirección Nueva", 5L));
+
+        mockMvc.perform(patch("/api/v1/tiendas/1")
+                .header("If-Match", "\"4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"direccion\":\"Dirección Nueva\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"5\""));
+
+        verify(assembler, never()).toModel(any(Tienda.class));
+    }
+
+    @Test
+    void testModificarTiendaNoEncontrada() throws Exception {
+        when(tiendaService.actualizarCampos(eq(999), any(Tienda.class), isNull()))
+                .thenThrow(new NoSuchElementException("Tienda no encontrada con ID: 999"));
+
+        mockMvc.perform(patch("/api/v1/tiendas/999")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\":\"Tienda\"}"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
     @Test
     void testEliminarTienda() throws Exception {
         doNothing().when(tiendaService).delete(1);
@@ -212,4 +681,62 @@ public class TiendaControllerTest {
 
         verify(tiendaService, times(1)).delete(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCrearTiendasEnLote() throws Exception {
+        when(tiendaService.crearEnLote(any())).thenReturn(List.of(
+                ResultadoLote.ok(0, 1, ResultadoLote.Estado.CREADA),
+                ResultadoLote.error(1, null, ResultadoLote.Estado.DUPLICADA, "Ya existe una tienda con ese nombre y dirección")));
+
+        mockMvc.perform(post("/api/v1/tiendas/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(
+                        new Tienda(null, "Tienda A", "Dirección A"),
+                        new Tienda(null, "Tienda A", "Dirección A")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].estado").value("CREADA"))
+                .andExpect(jsonPath("$[1].estado").value("DUPLICADA"));
+
+        verify(tiendaService, times(1)).crearEnLote(any());
+    }
+
+    @Test
+    void testCrearTiendasEnLoteNdjson() throws Exception {
+        when(tiendaService.crearEnLote(any())).thenAnswer(invocation -> {
+            Iterator<Tienda> tiendas = invocation.getArgument(0);
+            List<ResultadoLote> resultados = new ArrayList<>();
+            int i = 0;
+            while (tiendas.hasNext()) {
+                resultados.add(ResultadoLote.ok(i, i + 1, ResultadoLote.Estado.CREADA));
+                tiendas.next();
+                i++;
+            }
+            return resultados;
+        });
+
+        mockMvc.perform(post("/api/v1/tiendas/bulk")
+                .contentType("application/x-ndjson")
+                .content("{\"nombre\":\"Tienda A\",\"direccion\":\"Dirección A\"}\n"
+                        + "{\"nombre\":\"Tienda B\",\"direccion\":\"Dirección B\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].idTienda").value(2));
+    }
+
+    @Test
+    void testEliminarTiendasEnLote() throws Exception {
+        when(tiendaService.eliminarEnLote(any())).thenReturn(List.of(
+                ResultadoLote.ok(0, 1, ResultadoLote.Estado.ELIMINADA),
+                ResultadoLote.error(1, 999, ResultadoLote.Estado.NO_ENCONTRADA, "Tienda no encontrada con ID: 999")));
+
+        mockMvc.perform(delete("/api/v1/tiendas/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 999]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].estado").value("ELIMINADA"))
+                .andExpect(jsonPath("$[1].estado").value("NO_ENCONTRADA"));
+
+        verify(tiendaService, never()).delete(any());
+    }
+}
@@ -0,0 +1,134 @@
+package com.tienda.vm_tienda.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Primaria y réplicas son bases H2 en memoria distintas; cada una guarda su propio nombre
+// en la tabla origen, así se ve a qué base fue cada transacción.
+public class ReplicasLecturaTest {
+
+    private JdbcTemplate replicaA;
+    private JdbcTemplate replicaB;
+    private ReplicasLectura replicas;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate lectura;
+    private TransactionTemplate escritura;
+
+    @BeforeEach
+    void crearBases() {
+        DataSource primaria = base("primaria");
+        DataSource a = base("replica-a");
+        replicaA = new JdbcTemplate(a);
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        pools.put("replica-a", a);
+        DataSource b = base("replica-b");
+        replicaB = new JdbcTemplate(b);
+        pools.put("replica-b", b);
+
+        replicas = new ReplicasLectura(primaria, pools, Duration.ofSeconds(5),
+                "SELECT segundos FROM retraso", Duration.ZERO, new SimpleMeterRegistry());
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaria);
+        proxy.setReadOnlyDataSource(replicas);
+
+        jdbc = new JdbcTemplate(proxy);
+        DataSourceTransactionManager transacciones = new DataSourceTransactionManager(proxy);
+        escritura = new TransactionTemplate(transacciones);
+        lectura = new TransactionTemplate(transacciones);
+        lectura.setReadOnly(true);
+    }
+
+    @AfterEach
+    void cerrar() throws Exception {
+        replicas.close();
+    }
+
+    @Test
+    void testSinVerificarLasLecturasVanALaPrimaria() {
+        assertEquals("primaria", leer(lectura));
+    }
+
+    @Test
+    void testLecturasSeRepartenEntreReplicasYEscriturasVanALaPrimaria() {
+        replicas.verificar();
+
+        assertEquals(2, replicas.disponibles());
+        assertEquals("replica-a", leer(lectura));
+        assertEquals("replica-b", leer(lectura));
+        assertEquals("replica-a", leer(lectura));
+        assertEquals("primaria", leer(escritura));
+    }
+
+    @Test
+    void testReplicaAtrasadaSeSalta() {
+        replicaA.update("UPDATE retraso SET segundos = 30");
+        replicas.verificar();
+
+        assertEquals(1, replicas.disponibles());
+        assertEquals("replica-b", leer(lectura));
+        assertEquals("replica-b", leer(lectura));
+
+        replicaA.update("UPDATE retraso SET segundos = 0");
+        replicas.verificar();
+        assertEquals(2, replicas.disponibles());
+    }
+
+    @Test
+    void testSinReplicasSanasSeUsaLaPrimaria() {
+        replicas.verificar();
+        // Una réplica que no responde a la consulta de retraso se da por caída
+        replicaA.execute("DROP TABLE retraso");
+        replicaB.execute("DROP TABLE retraso");
+        replicas.verificar();
+
+        assertEquals(0, replicas.disponibles());
+        assertEquals("primaria", leer(lectura));
+    }
+
+    @Test
+    void testConCredencialesTambienSeUsaUnaReplica() throws Exception {
+        replicas.verificar();
+
+        try (Connection conexion = replicas.getConnection("sa", "");
+             Statement sentencia = conexion.createStatement();
+             ResultSet resultado = sentencia.executeQuery("SELECT nombre FROM origen")) {
+            assertTrue(resultado.next());
+            assertEquals("replica-a", resultado.getString(1));
+        }
+    }
+
+    private String leer(TransactionTemplate transaccion) {
+        return transaccion.execute(estado -> jdbc.queryForObject("SELECT nombre FROM origen", String.class));
+    }
+
+    private static DataSource base(String nombre) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + nombre + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE origen (nombre VARCHAR(20))");
+        jdbc.update("INSERT INTO origen VALUES (?)", nombre);
+        jdbc.execute("CREATE TABLE retraso (segundos DOUBLE)");
+        jdbc.update("INSERT INTO retraso VALUES (0)");
+        return dataSource;
+    }
+}
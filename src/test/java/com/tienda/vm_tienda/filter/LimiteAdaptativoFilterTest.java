@@ -0,0 +1,94 @@
+package com.tienda.vm_tienda.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimiteAdaptativoFilterTest {
+
+    private final AtomicLong reloj = new AtomicLong();
+    private SimpleMeterRegistry registry;
+    private LimiteAdaptativoFilter filtro;
+
+    @BeforeEach
+    void crear() {
+        registry = new SimpleMeterRegistry();
+        filtro = new LimiteAdaptativoFilter(10, 2, 20, 100, registry, reloj::get);
+    }
+
+    @Test
+    void testRechazaConServiceUnavailableAlSuperarElLimite() throws Exception {
+        LimiteAdaptativoFilter unico = new LimiteAdaptativoFilter(1, 1, 1, 100, registry, reloj::get);
+        MockHttpServletResponse[] interna = new MockHttpServletResponse[1];
+
+        MockHttpServletResponse externa = ejecutar(unico, (req, res) -> interna[0] = ejecutar(unico, new MockFilterChain()));
+
+        assertEquals(200, externa.getStatus());
+        assertEquals(503, interna[0].getStatus());
+        assertEquals("1", interna[0].getHeader("Retry-After"));
+        assertEquals(1.0, registry.get("tienda.limite.peticiones")
+                .tag("limitador", "concurrencia").tag("resultado", "rechazada").counter().count());
+        // Al terminar la primera se libera el cupo
+        assertEquals(200, ejecutar(unico, new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void testLatenciaAltaRecortaElLimiteUnaVezPorVentana() throws Exception {
+        FilterChain lenta = (req, res) -> reloj.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        ejecutar(filtro, lenta);
+        assertEquals(9, filtro.limiteActual());
+
+        // La siguiente lenta cae en otra ventana (avanzó 500 ms), la rápida no recorta
+        ejecutar(filtro, lenta);
+        assertEquals(8, filtro.limiteActual());
+        ejecutar(filtro, new MockFilterChain());
+        assertEquals(8, filtro.limiteActual());
+    }
+
+    @Test
+    void testNoBajaDelMinimo() throws Exception {
+        FilterChain lenta = (req, res) -> reloj.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        for (int i = 0; i < 50; i++) {
+            ejecutar(filtro, lenta);
+        }
+
+        assertEquals(2, filtro.limiteActual());
+    }
+
+    @Test
+    void testRutasLargasNoRecortanElLimite() throws Exception {
+        FilterChain lenta = (req, res) -> reloj.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        ejecutar(filtro, new MockHttpServletRequest("POST", "/api/v1/tiendas/bulk"), lenta);
+        ejecutar(filtro, new MockHttpServletRequest("GET", "/api/v1/tiendas/export"), lenta);
+
+        assertEquals(10, filtro.limiteActual());
+    }
+
+    private static MockHttpServletResponse ejecutar(LimiteAdaptativoFilter filtro, FilterChain chain)
+            throws ServletException, IOException {
+        return ejecutar(filtro, new MockHttpServletRequest("GET", "/api/v1/tiendas/1"), chain);
+    }
+
+    private static MockHttpServletResponse ejecutar(LimiteAdaptativoFilter filtro, MockHttpServletRequest request,
+            FilterChain chain) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,97 @@
+package com.tienda.vm_tienda.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimiteTasaFilterTest {
+
+    private final AtomicLong reloj = new AtomicLong();
+    private SimpleMeterRegistry registry;
+    private LimiteTasaFilter filtro;
+
+    @BeforeEach
+    void crear() {
+        registry = new SimpleMeterRegistry();
+        filtro = new LimiteTasaFilter(
+                new LimiteTasaFilter.Tasa(10, 5),
+                new LimiteTasaFilter.Tasa(1, 1),
+                new LimiteTasaFilter.Tasa(1, 2),
+                Set.of("cliente-a", "cliente-b"), registry, reloj::get);
+    }
+
+    @Test
+    void testRafagaAdmitidaYLuegoRechazadaConRetryAfter() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(200, ejecutar("POST", "/api/v1/tiendas", "cliente-a").getStatus());
+        }
+
+        MockHttpServletResponse rechazada = ejecutar("POST", "/api/v1/tiendas", "cliente-a");
+        assertEquals(429, rechazada.getStatus());
+        assertEquals("1", rechazada.getHeader("Retry-After"));
+        assertEquals(1.0, registry.get("tienda.limite.peticiones")
+                .tag("limitador", "tasa").tag("resultado", "rechazada").counter().count());
+
+        reloj.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(200, ejecutar("POST", "/api/v1/tiendas", "cliente-a").getStatus());
+    }
+
+    @Test
+    void testCubetasSeparadasPorClienteYRuta() throws Exception {
+        assertEquals(200, ejecutar("GET", "/api/v1/tiendas", "cliente-a").getStatus());
+        assertEquals(429, ejecutar("GET", "/api/v1/tiendas", "cliente-a").getStatus());
+
+        // Otro cliente, y el listado paginado o por ID, tienen su propia cubeta
+        assertEquals(200, ejecutar("GET", "/api/v1/tiendas", "cliente-b").getStatus());
+        MockHttpServletRequest paginada = peticion("GET", "/api/v1/tiendas", "cliente-a");
+        paginada.setParameter("limit", "10");
+        assertEquals(200, ejecutar(paginada).getStatus());
+        assertEquals(200, ejecutar("GET", "/api/v1/tiendas/7", "cliente-a").getStatus());
+    }
+
+    @Test
+    void testRutasConIdCompartenCubeta() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(200, ejecutar("GET", "/api/v1/tiendas/" + i, "cliente-a").getStatus());
+        }
+        assertEquals(429, ejecutar("GET", "/api/v1/tiendas/6", "cliente-a").getStatus());
+    }
+
+    @Test
+    void testClaveNoRegistradaCuentaPorIp() throws Exception {
+        assertEquals(200, ejecutar("GET", "/api/v1/tiendas", "inventada-1").getStatus());
+
+        // Cambiar de clave no da una cubeta nueva
+        assertEquals(429, ejecutar("GET", "/api/v1/tiendas", "inventada-2").getStatus());
+        assertEquals(429, ejecutar("GET", "/api/v1/tiendas", null).getStatus());
+        assertEquals(200, ejecutar("GET", "/api/v1/tiendas", "cliente-a").getStatus());
+    }
+
+    private MockHttpServletResponse ejecutar(String metodo, String ruta, String apiKey) throws Exception {
+        return ejecutar(peticion(metodo, ruta, apiKey));
+    }
+
+    private MockHttpServletResponse ejecutar(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest peticion(String metodo, String ruta, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, ruta);
+        if (apiKey != null) {
+            request.addHeader(LimiteTasaFilter.API_KEY, apiKey);
+        }
+        return request;
+    }
+}
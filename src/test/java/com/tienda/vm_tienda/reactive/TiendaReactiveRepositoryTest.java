@@ -0,0 +1,124 @@
+package com.tienda.vm_tienda.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tienda.vm_tienda.model.Tienda;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mapping.callback.ReactiveEntityCallbacks;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Ejecuta el SQL escrito a mano del repositorio reactivo contra H2 por R2DBC, con el mismo
+// esquema que crea Flyway (V1-V5) y los IDs asignados por AsignadorIdTienda.
+public class TiendaReactiveRepositoryTest {
+
+    private DatabaseClient cliente;
+    private TiendaReactiveRepository repositorio;
+
+    @BeforeEach
+    void crearBase() {
+        ConnectionFactory fabrica = ConnectionFactories.get("r2dbc:h2:mem:///reactiva-" + UUID.randomUUID()
+                + "?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+        cliente = DatabaseClient.create(fabrica);
+        cliente.sql("CREATE SEQUENCE tienda_seq START WITH 1 INCREMENT BY 50").then().block();
+        cliente.sql("CREATE TABLE tienda (id_tienda INTEGER PRIMARY KEY, nombre VARCHAR(255) NOT NULL, "
+                + "direccion VARCHAR(500) NOT NULL, latitud DOUBLE PRECISION, longitud DOUBLE PRECISION, "
+                + "version BIGINT DEFAULT 0 NOT NULL, "
+                + "modificada_en TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL, "
+                + "eliminada_en TIMESTAMP WITH TIME ZONE, vigente BOOLEAN, "
+                + "CONSTRAINT uk_tienda_nombre_direccion_vigente UNIQUE (nombre, direccion, vigente))").then().block();
+
+        R2dbcEntityTemplate plantilla = new R2dbcEntityTemplate(fabrica);
+        plantilla.setEntityCallbacks(ReactiveEntityCallbacks.create(new AsignadorIdTienda(cliente)));
+        repositorio = new R2dbcRepositoryFactory(plantilla).getRepository(TiendaReactiveRepository.class);
+    }
+
+    @Test
+    void testGuardarAsignaIdsDelBloqueDeLaSecuencia() {
+        Tienda a = guardar("Tienda A", "Dirección A");
+        Tienda b = guardar("Tienda B", "Dirección B");
+
+        assertEquals(2, a.getIdTienda());
+        assertEquals(3, b.getIdTienda());
+        assertEquals(0L, a.getVersion());
+    }
+
+    @Test
+    void testEliminarDejaLapidaInvisibleParaLasConsultas() {
+        Tienda viva = guardar("Tienda Viva", "Dirección A");
+        Tienda borrada = guardar("Tienda Borrada", "Dirección B");
+
+        StepVerifier.create(repositorio.eliminar(borrada.getIdTienda(), Instant.now()))
+                .expectNext(1)
+                .verifyComplete();
+        // Una segunda eliminación ya no encuentra fila vigente
+        StepVerifier.create(repositorio.eliminar(borrada.getIdTienda(), Instant.now()))
+                .expectNext(0)
+                .verifyComplete();
+
+        StepVerifier.create(repositorio.findById(borrada.getIdTienda())).verifyComplete();
+        StepVerifier.create(repositorio.findById(viva.getIdTienda()))
+                .expectNextMatches(t -> "Tienda Viva".equals(t.getNombre()))
+                .verifyComplete();
+        StepVerifier.create(repositorio.findPage(0, 10))
+                .expectNextMatches(t -> t.getIdTienda().equals(viva.getIdTienda()))
+                .verifyComplete();
+        StepVerifier.create(repositorio.streamAll())
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(repositorio.findByNombreAndDireccionAndEliminadaEnIsNull("Tienda Borrada", "Dirección B"))
+                .verifyComplete();
+
+        StepVerifier.create(cliente.sql("SELECT version, eliminada_en FROM tienda WHERE id_tienda = :id")
+                        .bind("id", borrada.getIdTienda())
+                        .map(fila -> fila.get("version", Long.class) == 1L && fila.get("eliminada_en") != null)
+                        .one())
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindPageRespetaAfterYLimit() {
+        guardar("Tienda 1", "Dirección 1");
+        Tienda segunda = guardar("Tienda 2", "Dirección 2");
+        guardar("Tienda 3", "Dirección 3");
+
+        StepVerifier.create(repositorio.findPage(segunda.getIdTienda() - 1, 1))
+                .expectNextMatches(t -> t.getIdTienda().equals(segunda.getIdTienda()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testCrearConVersionEnElCuerpoInserta() throws Exception {
+        TiendaReactiveService servicio = new TiendaReactiveService();
+        ReflectionTestUtils.setField(servicio, "tiendaRepository", repositorio);
+        Tienda cuerpo = new ObjectMapper().readValue(
+                "{\"idTienda\":99,\"nombre\":\"Tienda\",\"direccion\":\"Dirección\",\"version\":5}", Tienda.class);
+
+        StepVerifier.create(servicio.save(cuerpo))
+                .expectNextMatches(t -> t.getIdTienda() != 99 && t.getVersion() == 0L)
+                .verifyComplete();
+        StepVerifier.create(repositorio.findByNombreAndDireccionAndEliminadaEnIsNull("Tienda", "Dirección"))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    private Tienda guardar(String nombre, String direccion) {
+        Tienda tienda = new Tienda(null, nombre, direccion);
+        tienda.setModificadaEn(Instant.now());
+        return repositorio.save(tienda).block();
+    }
+}
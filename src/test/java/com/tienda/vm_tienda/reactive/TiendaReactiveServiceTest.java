@@ -0,0 +1,102 @@
+package com.tienda.vm_tienda.reactive;
+
+import com.tienda.vm_tienda.model.Tienda;
+import com.tienda.vm_tienda.service.TiendaService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.NoSuchElementException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TiendaReactiveServiceTest {
+
+    @Mock
+    private TiendaReactiveRepository tiendaRepository;
+
+    @InjectMocks
+    private TiendaReactiveService tiendaService;
+
+    @Test
+    void testFindAll() {
+        when(tiendaRepository.streamAll()).thenReturn(Flux.just(
+                new Tienda(1, "Tienda A", "Dirección A"),
+                new Tienda(2, "Tienda B", "Dirección B")));
+
+        StepVerifier.create(tiendaService.findAll(), 1)
+                .expectNextMatches(tienda -> tienda.getIdTienda() == 1)
+                .thenRequest(1)
+                .expectNextMatches(tienda -> tienda.getIdTienda() == 2)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindPage() {
+        when(tiendaRepository.findPage(10, TiendaService.LIMITE_POR_DEFECTO))
+                .thenReturn(Flux.just(new Tienda(11, "Tienda K", "Dirección K")));
+
+        StepVerifier.create(tiendaService.findPage(10, null))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindById() {
+        when(tiendaRepository.findById(1)).thenReturn(Mono.just(new Tienda(1, "Tienda Test", "Dirección Test")));
+
+        StepVerifier.create(tiendaService.findById(1))
+                .expectNextMatches(tienda -> "Tienda Test".equals(tienda.getNombre()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindByIdNoEncontrado() {
+        when(tiendaRepository.findById(999)).thenReturn(Mono.empty());
+
+        StepVerifier.create(tiendaService.findById(999))
+                .expectErrorMatches(ex -> ex instanceof NoSuchElementException
+                        && "Tienda no encontrada con ID: 999".equals(ex.getMessage()))
+                .verify();
+    }
+
+    @Test
+    void testSaveDuplicada() {
+        when(tiendaRepository.save(any(Tienda.class))).thenReturn(Mono.error(new DuplicateKeyException("uk_tienda_nombre_direccion")));
+
+        StepVerifier.create(tiendaService.save(new Tienda(null, "Tienda", "Dirección")))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+
+    @Test
+    void testUpdate() {
+        Tienda existente = new Tienda(1, "Tienda Original", "Dirección Original");
+        when(tiendaRepository.findById(1)).thenReturn(Mono.just(existente));
+        when(tiendaRepository.save(existente)).thenReturn(Mono.just(existente));
+
+        StepVerifier.create(tiendaService.update(1, new Tienda(null, "Tienda Modificada", "Dirección Modificada")))
+                .expectNextMatches(tienda -> "Tienda Modificada".equals(tienda.getNombre()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testDeleteNoEncontrada() {
+        when(tiendaRepository.findById(999)).thenReturn(Mono.empty());
+
+        StepVerifier.create(tiendaService.delete(999))
+                .expectError(NoSuchElementException.class)
+                .verify();
+        verify(tiendaRepository, never()).delete(any(Tienda.class));
+    }
+}
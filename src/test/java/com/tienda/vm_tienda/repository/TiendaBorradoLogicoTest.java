@@ -0,0 +1,144 @@
+package com.tienda.vm_tienda.repository;
+
+import com.tienda.vm_tienda.dto.LoteSincronizacion;
+import com.tienda.vm_tienda.dto.TiendaSincronizada;
+import com.tienda.vm_tienda.model.Tienda;
+import com.tienda.vm_tienda.service.TiendaService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:borrado-logico;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "tienda.sincronizacion.margen=0s"
+})
+public class TiendaBorradoLogicoTest {
+
+    @Autowired
+    private TiendaService tiendaService;
+
+    @Autowired
+    private TiendaRepository tiendaRepository;
+
+    @Test
+    void testEliminadaNoApareceEnLecturas() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Lápida", "Dirección " + System.nanoTime()));
+
+        tiendaService.delete(tienda.getIdTienda());
+
+        assertThrows(NoSuchElementException.class, () -> tiendaService.findById(tienda.getIdTienda()));
+        assertTrue(tiendaRepository.findAll().stream().noneMatch(t -> t.getIdTienda().equals(tienda.getIdTienda())));
+        assertTrue(tiendaService.findPage(tienda.getIdTienda() - 1, 1).stream()
+                .noneMatch(t -> t.getIdTienda().equals(tienda.getIdTienda())));
+        assertThrows(NoSuchElementException.class, () -> tiendaService.delete(tienda.getIdTienda()));
+    }
+
+    @Test
+    void testDuplicadoVigenteSeRechazaYLaLapidaNoBloquea() {
+        String direccion = "Dirección " + System.nanoTime();
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Única", direccion));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> tiendaService.save(new Tienda(null, "Tienda Única", direccion)));
+
+        tiendaService.delete(tienda.getIdTienda());
+        Tienda otraVez = tiendaService.save(new Tienda(null, "Tienda Única", direccion));
+        assertNotEquals(tienda.getIdTienda(), otraVez.getIdTienda());
+        tiendaService.delete(otraVez.getIdTienda());
+        // Dos lápidas con el mismo nombre y dirección tampoco chocan entre sí
+        assertNotNull(tiendaService.save(new Tienda(null, "Tienda Única", direccion)).getIdTienda());
+    }
+
+    @Test
+    void testDireccionNulaNoEludeLaUnicidad() {
+        // Con direccion NULL la restricción única no compararía las dos filas
+        tiendaRepository.saveAndFlush(new Tienda(null, "Tienda Sin Dirección", "Dirección " + System.nanoTime()));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> tiendaRepository.saveAndFlush(new Tienda(null, "Tienda Sin Dirección", null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> tiendaService.save(new Tienda(null, "Tienda Sin Dirección", null)));
+    }
+
+    @Test
+    void testSincronizarIncluyeLapidasEnOrden() throws InterruptedException {
+        Instant desde = Instant.now().minusMillis(1);
+        Tienda viva = tiendaService.save(new Tienda(null, "Tienda Viva", "Dirección " + System.nanoTime()));
+        Tienda borrada = tiendaService.save(new Tienda(null, "Tienda Borrada", "Dirección " + System.nanoTime()));
+        tiendaService.delete(borrada.getIdTienda());
+        Thread.sleep(5);
+
+        LoteSincronizacion lote = tiendaService.sincronizar(desde, null, 10);
+
+        TiendaSincronizada primera = lote.tiendas().get(0);
+        TiendaSincronizada ultima = lote.tiendas().get(lote.tiendas().size() - 1);
+        assertEquals(viva.getIdTienda(), primera.idTienda());
+        assertNull(primera.eliminadaEn());
+        assertEquals(borrada.getIdTienda(), ultima.idTienda());
+        assertNotNull(ultima.eliminadaEn());
+        assertNull(ultima.nombre());
+
+        // El cursor devuelto no repite lo ya leído
+        LoteSincronizacion siguiente = tiendaService.sincronizar(lote.since(), lote.after(), 10);
+        assertTrue(siguiente.tiendas().isEmpty());
+        assertFalse(siguiente.hayMas());
+    }
+
+    @Test
+    void testSincronizarPagina() throws InterruptedException {
+        Instant desde = Instant.now().minusMillis(1);
+        for (int i = 0; i < 3; i++) {
+            tiendaService.save(new Tienda(null, "Tienda Página " + i, "Dirección " + System.nanoTime()));
+        }
+        Thread.sleep(5);
+
+        LoteSincronizacion primera = tiendaService.sincronizar(desde, null, 2);
+        LoteSincronizacion segunda = tiendaService.sincronizar(primera.since(), primera.after(), 2);
+
+        assertEquals(2, primera.tiendas().size());
+        assertTrue(primera.hayMas());
+        assertEquals(1, segunda.tiendas().size());
+        assertFalse(segunda.hayMas());
+    }
+
+    @Test
+    void testPurgaBorraLasLapidasVencidas() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Purga", "Dirección " + System.nanoTime()));
+        tiendaService.delete(tienda.getIdTienda());
+        // Otra escritura después: la lápida más reciente no se purga
+        tiendaService.save(new Tienda(null, "Tienda Posterior", "Dirección " + System.nanoTime()));
+
+        // Con la retención en el futuro todavía no vence
+        assertEquals(0, tiendaRepository.purgarEliminadas(Instant.now().minusSeconds(60), 100));
+        assertEquals(1, tiendaService.sincronizar(Instant.EPOCH, null, 1000).tiendas().stream()
+                .filter(t -> t.idTienda().equals(tienda.getIdTienda())).count());
+
+        assertTrue(tiendaRepository.purgarEliminadas(Instant.now().plusSeconds(1), 100) >= 1);
+        assertEquals(0, tiendaService.sincronizar(Instant.EPOCH, null, 1000).tiendas().stream()
+                .filter(t -> t.idTienda().equals(tienda.getIdTienda())).count());
+    }
+
+    @Test
+    void testPurgaNoRetrocedeLaVersionDeLaColeccion() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Última", "Dirección " + System.nanoTime()));
+        String antes = tiendaService.versionColeccion();
+        tiendaService.delete(tienda.getIdTienda());
+        String despues = tiendaService.versionColeccion();
+        assertNotEquals(antes, despues);
+
+        tiendaRepository.purgarEliminadas(Instant.now().plusSeconds(1), 100);
+
+        assertEquals(despues, tiendaService.versionColeccion());
+    }
+}
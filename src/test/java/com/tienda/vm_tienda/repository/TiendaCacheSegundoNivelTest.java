@@ -0,0 +1,141 @@
+package com.tienda.vm_tienda.repository;
+
+import com.tienda.vm_tienda.config.CacheConfig;
+import com.tienda.vm_tienda.model.Tienda;
+import com.tienda.vm_tienda.service.TiendaService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cache-l2;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+public class TiendaCacheSegundoNivelTest {
+
+    @Autowired
+    private TiendaService tiendaService;
+
+    @Autowired
+    private TiendaRepository tiendaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void limpiarEstadisticas() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    @Test
+    void testUpdateEjecutaUnaSolaSentencia() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Caché", "Dirección " + System.nanoTime()));
+        // Caché fría, como en otra instancia: el UPDATE no depende de tener la fila cargada
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+
+        Tienda actualizada = tiendaService.update(tienda.getIdTienda(),
+                new Tienda(null, "Tienda Caché 2", tienda.getDireccion()), tienda.getVersion());
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(tienda.getVersion() + 1, actualizada.getVersion());
+        assertEquals("Tienda Caché 2", tiendaRepository.findById(tienda.getIdTienda()).orElseThrow().getNombre());
+    }
+
+    @Test
+    void testUpdateConVersionObsoletaNoEscribe() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Caché", "Dirección " + System.nanoTime()));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> tiendaService.update(tienda.getIdTienda(),
+                new Tienda(null, "Tienda Caché 2", tienda.getDireccion()), tienda.getVersion() + 1));
+        assertThrows(NoSuchElementException.class, () -> tiendaService.update(Integer.MAX_VALUE,
+                new Tienda(null, "Tienda Caché 2", tienda.getDireccion()), 0L));
+        assertEquals("Tienda Caché", tiendaRepository.findById(tienda.getIdTienda()).orElseThrow().getNombre());
+    }
+
+    @Test
+    void testActualizarCamposSinVersionRelee() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Parcial", "Dirección " + System.nanoTime(),
+                -33.4, -70.6, null));
+
+        Tienda actualizada = tiendaService.actualizarCampos(tienda.getIdTienda(),
+                new Tienda(null, "Tienda Parcial 2", null), null);
+
+        assertEquals("Tienda Parcial 2", actualizada.getNombre());
+        assertEquals(tienda.getDireccion(), actualizada.getDireccion());
+        assertEquals(-33.4, actualizada.getLatitud());
+        assertEquals(tienda.getVersion() + 1, actualizada.getVersion());
+    }
+
+    @Test
+    void testUpdateConservaLasDemasTiendasEnCache() {
+        Tienda otra = tiendaService.save(new Tienda(null, "Tienda Vecina", "Dirección " + System.nanoTime()));
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Caché", "Dirección " + System.nanoTime()));
+        tiendaService.update(tienda.getIdTienda(), new Tienda(null, "Tienda Caché 2", tienda.getDireccion()));
+        tiendaService.delete(tienda.getIdTienda());
+        estadisticas.clear();
+
+        assertTrue(tiendaRepository.findById(otra.getIdTienda()).isPresent());
+
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void testListadosNoLlenanLaCache() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Listada", "Dirección " + System.nanoTime()));
+        entityManagerFactory.getCache().evict(Tienda.class, tienda.getIdTienda());
+        estadisticas.clear();
+
+        assertFalse(tiendaRepository.findAll().isEmpty());
+        assertFalse(tiendaService.findPage(tienda.getIdTienda() - 1, 1).isEmpty());
+
+        assertEquals(0, estadisticas.getSecondLevelCachePutCount());
+    }
+
+    @Test
+    void testFindByIdLlenaLaCache() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Leída", "Dirección " + System.nanoTime()));
+        cacheManager.getCache(CacheConfig.TIENDAS).evict(tienda.getIdTienda());
+        entityManagerFactory.getCache().evict(Tienda.class, tienda.getIdTienda());
+        estadisticas.clear();
+
+        tiendaService.findById(tienda.getIdTienda());
+
+        assertEquals(1, estadisticas.getSecondLevelCachePutCount());
+    }
+
+    @Test
+    void testDeleteEjecutaUnaSolaSentencia() {
+        Tienda tienda = tiendaService.save(new Tienda(null, "Tienda Borrable", "Dirección " + System.nanoTime()));
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+
+        tiendaService.delete(tienda.getIdTienda());
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertFalse(tiendaRepository.findById(tienda.getIdTienda()).isPresent());
+    }
+}
@@ -0,0 +1,226 @@
+package com.tienda.vm_tienda.service;
+
+import com.tienda.vm_tienda.dto.EstadoEscritura;
+import com.tienda.vm_tienda.dto.ResultadoLote;
+import com.tienda.vm_tienda.model.Tienda;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class EscrituraDiferidaTest {
+
+    @TempDir
+    Path directorio;
+
+    private final TiendaService tiendaService = mock(TiendaService.class);
+    private final List<EscrituraDiferida> creadas = new ArrayList<>();
+
+    @AfterEach
+    void detener() throws Exception {
+        for (EscrituraDiferida escritura : creadas) {
+            escritura.detener();
+        }
+    }
+
+    @Test
+    void testEncolarYDrenarCreaLaTienda() throws Exception {
+        crearTodasConIdDesde(100);
+        EscrituraDiferida escritura = crear(10, null);
+
+        EstadoEscritura pendiente = escritura.encolar(new Tienda(null, "Tienda A", "Dirección A"), null);
+
+        assertEquals(EstadoEscritura.Estado.PENDIENTE, pendiente.estado());
+        assertEquals(1, escritura.drenar());
+        EstadoEscritura estado = escritura.estado(pendiente.id());
+        assertEquals(EstadoEscritura.Estado.CREADA, estado.estado());
+        assertEquals(100, estado.idTienda());
+    }
+
+    @Test
+    void testDuplicadoQuedaEnElEstado() throws Exception {
+        when(tiendaService.crearEnLote(any())).thenReturn(List.of(ResultadoLote.error(0, null,
+                ResultadoLote.Estado.DUPLICADA, "Ya existe una tienda con ese nombre y dirección")));
+        EscrituraDiferida escritura = crear(10, null);
+
+        EstadoEscritura pendiente = escritura.encolar(new Tienda(null, "Tienda A", "Dirección A"), null);
+        escritura.drenar();
+
+        assertEquals(EstadoEscritura.Estado.DUPLICADA, escritura.estado(pendiente.id()).estado());
+    }
+
+    @Test
+    void testViolacionQueNoEsDeUnicidadQuedaInvalida() throws Exception {
+        when(tiendaService.crearEnLote(any())).thenThrow(new DataIntegrityViolationException("check",
+                new SQLException("value too long for type character varying(255)", "22001")));
+        EscrituraDiferida escritura = crear(10, null);
+
+        EstadoEscritura pendiente = escritura.encolar(new Tienda(null, "Tienda A", "Dirección A"), null);
+        escritura.drenar();
+
+        assertEquals(EstadoEscritura.Estado.INVALIDA, escritura.estado(pendiente.id()).estado());
+    }
+
+    @Test
+    void testIdempotencyKeyDevuelveLaMismaOperacion() throws Exception {
+        crearTodasConIdDesde(1);
+        EscrituraDiferida escritura = crear(10, null);
+
+        EstadoEscritura primera = escritura.encolar(new Tienda(null, "Tienda A", "Dirección A"), "clave-1");
+        EstadoEscritura repetida = escritura.encolar(new Tienda(null, "Tienda A", "Dirección A"), "clave-1");
+
+        assertEquals(primera.id(), repetida.id());
+        assertEquals(1, escritura.drenar());
+
+        // Tras crearla, el reintento devuelve el resultado final en vez de otra tienda
+        EstadoEscritura tardia = escritura.encolar(new Tienda(null, "Tienda A", "Dirección A"), "clave-1");
+        assertEquals(primera.id(), tardia.id());
+        assertEquals(EstadoEscritura.Estado.CREADA, tardia.estado());
+        assertEquals(0, escritura.drenar());
+    }
+
+    @Test
+    void testIdempotencyKeyConOtraTiendaSeRechaza() {
+        EscrituraDiferida escritura = crear(10, null);
+        escritura.encolar(new Tienda(null, "Tienda A", "Dirección A"), "clave-1");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> escritura.encolar(new Tienda(null, "Tienda B", "Dirección A"), "clave-1"));
+    }
+
+    @Test
+    void testColaLlenaSeRechaza() {
+        EscrituraDiferida escritura = crear(2, null);
+        escritura.encolar(new Tienda(null, "Tienda A", "Dirección"), null);
+        escritura.encolar(new Tienda(null, "Tienda B", "Dirección"), null);
+
+        assertThrows(IllegalStateException.class,
+                () -> escritura.encolar(new Tienda(null, "Tienda C", "Dirección"), null));
+    }
+
+    @Test
+    void testDiarioRecuperaLasNoConfirmadas() throws Exception {
+        Path diario = directorio.resolve("pendientes.ndjson");
+        EscrituraDiferida primera = crear(10, diario);
+        EstadoEscritura a = primera.encolar(new Tienda(null, "Tienda A", "Dirección"), "clave-a");
+        primera.encolar(new Tienda(null, "Tienda B", "Dirección"), null);
+        primera.detener();
+
+        // Simula una caída sin haber escrito nada: al arrancar se vuelven a encolar ambas
+        crearTodasConIdDesde(7);
+        EscrituraDiferida segunda = crear(10, diario);
+        assertEquals(EstadoEscritura.Estado.PENDIENTE, segunda.estado(a.id()).estado());
+        assertEquals(a.id(), segunda.encolar(new Tienda(null, "Tienda A", "Dirección"), "clave-a").id());
+        assertEquals(2, segunda.drenar());
+
+        assertEquals(EstadoEscritura.Estado.CREADA, segunda.estado(a.id()).estado());
+        segunda.detener();
+
+        // Tras otro reinicio el resultado y la Idempotency-Key siguen ahí y no se encola nada
+        EscrituraDiferida tercera = crear(10, diario);
+        EstadoEscritura repetida = tercera.encolar(new Tienda(null, "Tienda A", "Dirección"), "clave-a");
+        assertEquals(a.id(), repetida.id());
+        assertEquals(EstadoEscritura.Estado.CREADA, repetida.estado());
+        assertEquals(7, repetida.idTienda());
+        assertEquals(0, tercera.drenar());
+    }
+
+    @Test
+    void testRecuperadaQueYaSeHabiaCreadoNoQuedaDuplicada() throws Exception {
+        Path diario = directorio.resolve("pendientes.ndjson");
+        EscrituraDiferida primera = crear(10, diario);
+        EstadoEscritura a = primera.encolar(new Tienda(null, "Tienda A", "Dirección"), null);
+        primera.detener();
+
+        // La caída fue después de confirmar en la base y antes de anotar la confirmación
+        when(tiendaService.crearEnLote(any())).thenReturn(List.of(ResultadoLote.error(0, null,
+                ResultadoLote.Estado.DUPLICADA, "Ya existe una tienda con ese nombre y dirección")));
+        when(tiendaService.findVigente("Tienda A", "Dirección"))
+                .thenReturn(Optional.of(new Tienda(42, "Tienda A", "Dirección", 1L)));
+        EscrituraDiferida segunda = crear(10, diario);
+        segunda.drenar();
+
+        assertEquals(EstadoEscritura.Estado.CREADA, segunda.estado(a.id()).estado());
+        assertEquals(42, segunda.estado(a.id()).idTienda());
+    }
+
+    @Test
+    void testErrorPersistenteTerminaEnErrorSinReintentarParaSiempre() throws Exception {
+        when(tiendaService.crearEnLote(any())).thenThrow(new IllegalStateException("Sin conexión"));
+        EscrituraDiferida escritura = crear(10, null);
+
+        EstadoEscritura a = escritura.encolar(new Tienda(null, "Tienda A", "Dirección"), null);
+        EstadoEscritura b = escritura.encolar(new Tienda(null, "Tienda B", "Dirección"), null);
+        assertEquals(2, escritura.drenar());
+
+        assertEquals(EstadoEscritura.Estado.ERROR, escritura.estado(a.id()).estado());
+        assertEquals(EstadoEscritura.Estado.ERROR, escritura.estado(b.id()).estado());
+        // Tres intentos del lote y uno por tienda
+        verify(tiendaService, times(5)).crearEnLote(any());
+    }
+
+    @Test
+    void testEncolarConcurrenteConDiarioAnotaTodas() throws Exception {
+        Path diario = directorio.resolve("pendientes.ndjson");
+        EscrituraDiferida escritura = crear(200, diario);
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        List<Future<EstadoEscritura>> encoladas = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Tienda tienda = new Tienda(null, "Tienda " + i, "Dirección");
+            encoladas.add(hilos.submit(() -> escritura.encolar(tienda, null)));
+        }
+        for (Future<EstadoEscritura> encolada : encoladas) {
+            assertEquals(EstadoEscritura.Estado.PENDIENTE, encolada.get().estado());
+        }
+        hilos.shutdown();
+
+        assertEquals(200, Files.readAllLines(diario).size());
+        assertThrows(IllegalStateException.class,
+                () -> escritura.encolar(new Tienda(null, "Tienda C", "Dirección"), null));
+    }
+
+    private EscrituraDiferida crear(int capacidad, Path diario) {
+        EscrituraDiferida escritura = new EscrituraDiferida(tiendaService, new SimpleMeterRegistry(),
+                capacidad, 500, diario == null ? "" : diario.toString());
+        try {
+            escritura.recuperar();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+        creadas.add(escritura);
+        return escritura;
+    }
+
+    // Simula crearEnLote asignando IDs consecutivos a cada tienda del lote
+    private void crearTodasConIdDesde(int primerId) {
+        when(tiendaService.crearEnLote(any())).thenAnswer(invocacion -> {
+            Iterator<Tienda> tiendas = invocacion.getArgument(0);
+            List<ResultadoLote> resultados = new ArrayList<>();
+            int id = primerId;
+            while (tiendas.hasNext()) {
+                Tienda tienda = tiendas.next();
+                tienda.setIdTienda(id);
+                resultados.add(ResultadoLote.ok(resultados.size(), id++, ResultadoLote.Estado.CREADA));
+            }
+            return resultados;
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package com.tienda.vm_tienda.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LecturasCompartidasTest {
+
+    private static final int HILOS = 8;
+
+    private SimpleMeterRegistry registry;
+    private LecturasCompartidas lecturas;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void crear() {
+        registry = new SimpleMeterRegistry();
+        lecturas = new LecturasCompartidas(registry);
+        executor = Executors.newFixedThreadPool(HILOS);
+    }
+
+    @AfterEach
+    void cerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testLlamadasConcurrentesCompartenUnaConsulta() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger consultas = new AtomicInteger();
+
+        List<Future<String>> resultados = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            resultados.add(executor.submit(() -> lecturas.ejecutar("findById", 1, () -> {
+                consultas.incrementAndGet();
+                esperar(liberar);
+                return "Tienda A";
+            })));
+        }
+        esperarCoalescidas("findById", HILOS - 1);
+        liberar.countDown();
+
+        for (Future<String> resultado : resultados) {
+            assertEquals("Tienda A", resultado.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, consultas.get());
+        assertEquals(1, registry.get("tienda.lecturas.ejecutadas").tag("operacion", "findById").counter().count());
+    }
+
+    @Test
+    void testErrorSePropagaATodos() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        List<Future<Object>> resultados = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            resultados.add(executor.submit(() -> lecturas.ejecutar("findById", 999, () -> {
+                esperar(liberar);
+                throw new NoSuchElementException("Tienda no encontrada con ID: 999");
+            })));
+        }
+        esperarCoalescidas("findById", HILOS - 1);
+        liberar.countDown();
+
+        for (Future<Object> resultado : resultados) {
+            Exception ex = assertThrows(Exception.class, () -> resultado.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NoSuchElementException.class, ex.getCause());
+        }
+    }
+
+    @Test
+    void testClavesDistintasNoSeComparten() {
+        assertEquals("a", lecturas.ejecutar("findById", 1, () -> "a"));
+        assertEquals("b", lecturas.ejecutar("findById", 2, () -> "b"));
+        assertEquals("c", lecturas.ejecutar("findById", 1, () -> "c"));
+    }
+
+    @Test
+    void testInvalidarIniciaNuevaConsulta() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        Future<String> anterior = executor.submit(() -> lecturas.ejecutar("findAll", "*", () -> {
+            esperar(liberar);
+            return "antes";
+        }));
+        while (registry.find("tienda.lecturas.ejecutadas").counter() == null) {
+            Thread.sleep(5);
+        }
+
+        lecturas.invalidar("findAll", "*");
+
+        assertEquals("después", lecturas.ejecutar("findAll", "*", () -> "después"));
+        liberar.countDown();
+        assertEquals("antes", anterior.get(5, TimeUnit.SECONDS));
+    }
+
+    private void esperarCoalescidas(String operacion, int esperadas) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < limite) {
+            var contador = registry.find("tienda.lecturas.coalescidas").tag("operacion", operacion).counter();
+            if (contador != null && contador.count() >= esperadas) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("No se agruparon " + esperadas + " llamadas");
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
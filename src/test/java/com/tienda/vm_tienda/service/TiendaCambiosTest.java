@@ -0,0 +1,83 @@
+package com.tienda.vm_tienda.service;
+
+import com.tienda.vm_tienda.dto.CambioTienda;
+import com.tienda.vm_tienda.dto.LoteCambios;
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiendaCambiosTest {
+
+    private TiendaCambios cambios;
+
+    @BeforeEach
+    void crearBuffer() {
+        cambios = new TiendaCambios(4);
+    }
+
+    @Test
+    void testLeerDesdeSecuencia() {
+        cambios.publicar(CambioTienda.Tipo.CREADA, 1, new Tienda(1, "Tienda A", "Dirección A"));
+        cambios.publicar(CambioTienda.Tipo.ACTUALIZADA, 1, new Tienda(1, "Tienda B", "Dirección A"));
+        cambios.publicar(CambioTienda.Tipo.ELIMINADA, 1, null);
+
+        LoteCambios lote = cambios.leerDesde(1, 10);
+
+        assertFalse(lote.resincronizar());
+        assertEquals(3, lote.ultimaSecuencia());
+        assertEquals(2, lote.cambios().size());
+        assertEquals(2, lote.cambios().get(0).secuencia());
+        assertEquals("Tienda B", lote.cambios().get(0).tienda().getNombre());
+        assertEquals(CambioTienda.Tipo.ELIMINADA, lote.cambios().get(1).tipo());
+    }
+
+    @Test
+    void testLeerRespetaMaximo() {
+        for (int i = 1; i <= 4; i++) {
+            cambios.publicar(CambioTienda.Tipo.CREADA, i, new Tienda(i, "Tienda " + i, "Dirección"));
+        }
+
+        LoteCambios lote = cambios.leerDesde(0, 2);
+
+        assertEquals(2, lote.cambios().size());
+        assertEquals(2, lote.cambios().get(1).secuencia());
+    }
+
+    @Test
+    void testResincronizarCuandoElBufferAdelantaAlCliente() {
+        for (int i = 1; i <= 6; i++) {
+            cambios.publicar(CambioTienda.Tipo.CREADA, i, new Tienda(i, "Tienda " + i, "Dirección"));
+        }
+
+        assertTrue(cambios.leerDesde(1, 10).resincronizar());
+        assertFalse(cambios.leerDesde(2, 10).resincronizar());
+        assertEquals(4, cambios.leerDesde(2, 10).cambios().size());
+        assertTrue(cambios.leerDesde(7, 10).resincronizar());
+    }
+
+    @Test
+    void testPublicarCopiaLaTienda() {
+        Tienda tienda = new Tienda(1, "Tienda A", "Dirección A");
+        cambios.publicar(CambioTienda.Tipo.CREADA, 1, tienda);
+        tienda.setNombre("Otra");
+
+        assertEquals("Tienda A", cambios.leerDesde(0, 1).cambios().get(0).tienda().getNombre());
+    }
+
+    @Test
+    void testSuscribirYCancelar() {
+        AtomicInteger avisos = new AtomicInteger();
+        Runnable cancelar = cambios.suscribir(avisos::incrementAndGet);
+
+        cambios.publicar(CambioTienda.Tipo.ELIMINADA, 1, null);
+        cancelar.run();
+        cambios.publicar(CambioTienda.Tipo.ELIMINADA, 2, null);
+
+        assertEquals(1, avisos.get());
+    }
+}
@@ -0,0 +1,75 @@
+package com.tienda.vm_tienda.service;
+
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiendaIndiceBusquedaTest {
+
+    private TiendaIndiceBusqueda indice;
+
+    @BeforeEach
+    void crearIndice() {
+        indice = new TiendaIndiceBusqueda();
+        indice.indexar(new Tienda(1, "Panadería Ñuñoa", "Avenida Irarrázaval 1200"));
+        indice.indexar(new Tienda(2, "Ferretería Central", "Calle Panamá 55"));
+        indice.indexar(new Tienda(3, "Supermercado Los Andes", "Pasaje Central 10"));
+    }
+
+    @Test
+    void testBuscarSinTildesNiMayusculas() {
+        Page<Tienda> resultado = indice.buscar("PANADERIA", 0, 10);
+
+        assertEquals(1, resultado.getTotalElements());
+        assertEquals(1, resultado.getContent().get(0).getIdTienda());
+    }
+
+    @Test
+    void testBuscarPorSubcadena() {
+        Page<Tienda> resultado = indice.buscar("rrazav", 0, 10);
+
+        assertEquals(1, resultado.getTotalElements());
+        assertEquals(1, resultado.getContent().get(0).getIdTienda());
+    }
+
+    @Test
+    void testBuscarPrefijoCorto() {
+        Page<Tienda> resultado = indice.buscar("ñu", 0, 10);
+
+        assertEquals(1, resultado.getTotalElements());
+    }
+
+    @Test
+    void testRankingNombreAntesQueDireccion() {
+        Page<Tienda> resultado = indice.buscar("central", 0, 10);
+
+        assertEquals(2, resultado.getTotalElements());
+        assertEquals(2, resultado.getContent().get(0).getIdTienda());
+        assertEquals(3, resultado.getContent().get(1).getIdTienda());
+    }
+
+    @Test
+    void testPaginacion() {
+        Page<Tienda> primera = indice.buscar("central", 0, 1);
+        Page<Tienda> segunda = indice.buscar("central", 1, 1);
+
+        assertEquals(2, primera.getTotalPages());
+        assertEquals(2, primera.getContent().get(0).getIdTienda());
+        assertEquals(3, segunda.getContent().get(0).getIdTienda());
+        assertFalse(segunda.hasNext());
+    }
+
+    @Test
+    void testActualizarYEliminarMantienenElIndice() {
+        indice.indexar(new Tienda(2, "Ferretería Norte", "Calle Panamá 55"));
+        assertEquals(1, indice.buscar("central", 0, 10).getTotalElements());
+
+        indice.eliminar(3);
+        assertEquals(0, indice.buscar("central", 0, 10).getTotalElements());
+        assertEquals(2, indice.tamano());
+    }
+}
@@ -0,0 +1,127 @@
+package com.tienda.vm_tienda.service;
+
+import com.tienda.vm_tienda.dto.TiendaCercana;
+import com.tienda.vm_tienda.model.Tienda;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiendaIndiceGeograficoTest {
+
+    private TiendaIndiceGeografico indice;
+
+    @BeforeEach
+    void crearIndice() {
+        indice = new TiendaIndiceGeografico(0.05);
+        indice.indexar(tienda(1, "Plaza de Armas", -33.4378, -70.6504));
+        indice.indexar(tienda(2, "Providencia", -33.4263, -70.6200));
+        indice.indexar(tienda(3, "Maipú", -33.5106, -70.7572));
+        indice.indexar(tienda(4, "Valparaíso", -33.0472, -71.6127));
+        indice.indexar(new Tienda(5, "Sin coordenadas", "Calle 5"));
+    }
+
+    @Test
+    void testCercanasOrdenadasPorDistanciaDentroDelRadio() {
+        List<TiendaCercana> resultado = indice.cercanas(-33.4372, -70.6506, 20_000, 10);
+
+        assertEquals(List.of(1, 2, 3), resultado.stream().map(TiendaCercana::idTienda).toList());
+        assertTrue(resultado.get(0).distanciaMetros() < 100);
+        assertEquals(4, indice.tamano());
+    }
+
+    @Test
+    void testLimiteDevuelveLasMasCercanas() {
+        List<TiendaCercana> resultado = indice.cercanas(-33.4372, -70.6506, 200_000, 2);
+
+        assertEquals(List.of(1, 2), resultado.stream().map(TiendaCercana::idTienda).toList());
+    }
+
+    @Test
+    void testActualizarYEliminarMantienenElIndice() {
+        indice.indexar(tienda(4, "Valparaíso", -33.4380, -70.6510));
+        indice.eliminar(1);
+
+        List<TiendaCercana> resultado = indice.cercanas(-33.4372, -70.6506, 1_000, 10);
+
+        assertEquals(List.of(4), resultado.stream().map(TiendaCercana::idTienda).toList());
+    }
+
+    @Test
+    void testCruzaElAntimeridiano() {
+        indice.indexar(tienda(10, "Fiyi", -17.0, 179.99));
+
+        List<TiendaCercana> resultado = indice.cercanas(-17.0, -179.99, 5_000, 10);
+
+        assertEquals(List.of(10), resultado.stream().map(TiendaCercana::idTienda).toList());
+    }
+
+    @Test
+    void testCruzaElPolo() {
+        indice.indexar(tienda(20, "Base Amundsen-Scott", -89.99, 139.27));
+
+        List<TiendaCercana> resultado = indice.cercanas(-89.995, -40.0, 5_000, 10);
+
+        assertEquals(List.of(20), resultado.stream().map(TiendaCercana::idTienda).toList());
+    }
+
+    @Test
+    void testCoincideConRecorridoCompleto() {
+        Random random = new Random(7);
+        List<Tienda> tiendas = new ArrayList<>();
+        indice.limpiar();
+        for (int i = 1; i <= 5_000; i++) {
+            Tienda t = tienda(i, "Tienda " + i, -34 + random.nextDouble(), -71 + random.nextDouble());
+            tiendas.add(t);
+            indice.indexar(t);
+        }
+
+        for (int consulta = 0; consulta < 50; consulta++) {
+            double lat = -34 + random.nextDouble();
+            double lon = -71 + random.nextDouble();
+            assertEquals(recorridoCompleto(tiendas, lat, lon, 30_000, 15),
+                    indice.cercanas(lat, lon, 30_000, 15).stream().map(TiendaCercana::idTienda).toList());
+        }
+    }
+
+    @Test
+    void testCoincideConRecorridoCompletoCercaDelPolo() {
+        Random random = new Random(11);
+        List<Tienda> tiendas = new ArrayList<>();
+        indice.limpiar();
+        for (int i = 1; i <= 2_000; i++) {
+            Tienda t = tienda(i, "Tienda " + i, 86 + 4 * random.nextDouble(), -180 + 360 * random.nextDouble());
+            tiendas.add(t);
+            indice.indexar(t);
+        }
+
+        for (int consulta = 0; consulta < 50; consulta++) {
+            double lat = 86 + 4 * random.nextDouble();
+            double lon = -180 + 360 * random.nextDouble();
+            double radio = 10_000 + 300_000 * random.nextDouble();
+            assertEquals(recorridoCompleto(tiendas, lat, lon, radio, 15),
+                    indice.cercanas(lat, lon, radio, 15).stream().map(TiendaCercana::idTienda).toList());
+        }
+    }
+
+    private static List<Integer> recorridoCompleto(List<Tienda> tiendas, double lat, double lon, double radio, int limite) {
+        return tiendas.stream()
+                .filter(t -> TiendaIndiceGeografico.distanciaMetros(lat, lon, t.getLatitud(), t.getLongitud()) <= radio)
+                .sorted(Comparator.comparingDouble(
+                        (Tienda t) -> TiendaIndiceGeografico.distanciaMetros(lat, lon, t.getLatitud(), t.getLongitud()))
+                        .thenComparing(Tienda::getIdTienda))
+                .limit(limite)
+                .map(Tienda::getIdTienda)
+                .toList();
+    }
+
+    private static Tienda tienda(int id, String nombre, double latitud, double longitud) {
+        return new Tienda(id, nombre, "Dirección " + id, latitud, longitud, 0L);
+    }
+}
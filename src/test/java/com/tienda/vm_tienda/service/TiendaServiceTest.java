@@ -1,19 +1,42 @@
 package com.tienda.vm_tienda.service;
 
+import com.tienda.vm_tienda.config.CacheConfig;
+import com.tienda.vm_tienda.dto.CambioTienda;
+import com.tienda.vm_tienda.dto.LoteCambios;
+import com.tienda.vm_tienda.dto.ProgresoImportacion;
+import com.tienda.vm_tienda.dto.ResultadoLote;
+import com.tienda.vm_tienda.dto.TiendaCercana;
+import com.tienda.vm_tienda.dto.TiendaResumen;
 import com.tienda.vm_tienda.model.Tienda;
 import com.tienda.vm_tienda.repository.TiendaRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -25,6 +48,24 @@ public class TiendaServiceTest {
     @MockitoBean
     private TiendaRepository tiendaRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TiendaIndiceBusqueda indiceBusqueda;
+
+    @Autowired
+    private TiendaCambios cambios;
+
+    @BeforeEach
+    void limpiarCache() {
+        cacheManager.getCache(CacheConfig.TIENDAS).clear();
+        indiceBusqueda.limpiar();
+    }
+
     @Test
     void testFindAll() {
         Tienda tienda1 = new Tienda(1, "Tienda A", "Dirección A");
@@ -40,6 +81,17 @@ public class TiendaServiceTest {
         verify(tiendaRepository, times(1)).findAll();
     }
 
+    @Test
+    void testFindAllRegistraTimer() {
+        when(tiendaRepository.findAll()).thenReturn(List.of());
+
+        tiendaService.findAll();
+
+        Timer timer = meterRegistry.find("tienda.service").tag("method", "findAll").timer();
+        assertNotNull(timer);
+        assertTrue(timer.count() >= 1);
+    }
+
     @Test
     void testFindAllVacio() {
         when(tiendaRepository.findAll()).thenReturn(List.of());
@@ -50,6 +102,30 @@ public class TiendaServiceTest {
         verify(tiendaRepository, times(1)).findAll();
     }
 
+    @Test
+    void testFindPage() {
+        Tienda tienda = new Tienda(11, "Tienda K", "Dirección K");
+        when(tiendaRepository.findByIdTiendaGreaterThanOrderByIdTiendaAsc(10, Limit.of(5))).thenReturn(List.of(tienda));
+
+        List<Tienda> result = tiendaService.findPage(10, 5);
+
+        assertEquals(1, result.size());
+        assertEquals(11, result.get(0).getIdTienda());
+        verify(tiendaRepository, times(1)).findByIdTiendaGreaterThanOrderByIdTiendaAsc(10, Limit.of(5));
+        verify(tiendaRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindPageLimitesPorDefecto() {
+        when(tiendaRepository.findByIdTiendaGreaterThanOrderByIdTiendaAsc(any(), any(Limit.class))).thenReturn(List.of());
+
+        tiendaService.findPage(null, null);
+        tiendaService.findPage(0, 50000);
+
+        verify(tiendaRepository).findByIdTiendaGreaterThanOrderByIdTiendaAsc(0, Limit.of(TiendaService.LIMITE_POR_DEFECTO));
+        verify(tiendaRepository).findByIdTiendaGreaterThanOrderByIdTiendaAsc(0, Limit.of(TiendaService.LIMITE_MAXIMO));
+    }
+
     @Test
     void testFindById() {
         Tienda tienda = new Tienda(1, "Tienda Test", "Dirección Test");
@@ -77,12 +153,239 @@ public class TiendaServiceTest {
         verify(tiendaRepository, times(1)).findById(999);
     }
 
+    @Test
+    void testFindByIdUsaCache() {
+        Tienda tienda = new Tienda(1, "Tienda Test", "Dirección Test");
+        when(tiendaRepository.findById(1)).thenReturn(Optional.of(tienda));
+
+        Tienda primera = tiendaService.findById(1);
+        Tienda segunda = tiendaService.findById(1);
+
+        assertSame(primera, segunda);
+        verify(tiendaRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void testFindByIdNoEncontradoNoSeCachea() {
+        when(tiendaRepository.findById(999)).thenReturn(Optional.empty());
+
+        assertThrows(NoSuchElementException.class, () -> tiendaService.findById(999));
+        assertThrows(NoSuchElementException.class, () -> tiendaService.findById(999));
+
+        verify(tiendaRepository, times(2)).findById(999);
+    }
+
+    @Test
+    void testDeleteInvalidaCache() {
+        Tienda tienda = new Tienda(1, "Tienda Test", "Dirección Test");
+        when(tiendaRepository.findById(1)).thenReturn(Optional.of(tienda));
+        when(tiendaRepository.eliminar(eq(1), isNull(), any(Instant.class))).thenReturn(1);
+
+        tiendaService.findById(1);
+        tiendaService.delete(1);
+
+        assertNull(cacheManager.getCache(CacheConfig.TIENDAS).get(1));
+    }
+
+    @Test
+    void testUpdateInvalidaCache() {
+        when(tiendaRepository.findById(1)).thenReturn(Optional.of(new Tienda(1, "Tienda Original", "Dirección Original")));
+        when(tiendaRepository.actualizar(eq(1), any(), any(), any(), any(), isNull(), any(Instant.class))).thenReturn(1);
+        when(tiendaRepository.releer(1)).thenReturn(Optional.of(new Tienda(1, "Tienda Modificada", "Dirección Modificada", 1L)));
+
+        tiendaService.findById(1);
+        tiendaService.update(1, new Tienda(null, "Tienda Modificada", "Dirección Modificada"));
+
+        assertNull(cacheManager.getCache(CacheConfig.TIENDAS).get(1));
+    }
+
+    @Test
+    void testUpdateVersionObsoleta() {
+        when(tiendaRepository.actualizar(eq(1), any(), any(), any(), any(), eq(2L), any(Instant.class))).thenReturn(0);
+        when(tiendaRepository.existsById(1)).thenReturn(true);
+        long ultima = cambios.ultimaSecuencia();
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> tiendaService.update(1, new Tienda(null, "Tienda Modificada", "Dirección"), 2L));
+
+        assertEquals(ultima, cambios.ultimaSecuencia());
+        verify(tiendaRepository, never()).releer(any());
+    }
+
+    @Test
+    void testUpdateConVersionEsUnaSolaSentencia() {
+        when(tiendaRepository.actualizar(eq(1), eq("Tienda Modificada"), eq("Dirección"), isNull(), isNull(), eq(2L),
+                any(Instant.class))).thenReturn(1);
+
+        Tienda result = tiendaService.update(1, new Tienda(null, "Tienda Modificada", "Dirección"), 2L);
+
+        assertEquals(3L, result.getVersion());
+        assertEquals("Tienda Modificada", result.getNombre());
+        verify(tiendaRepository, never()).findById(any());
+        verify(tiendaRepository, never()).releer(any());
+    }
+
+    @Test
+    void testUpdateSinVersionDevuelveLaVersionDeLaBaseDeDatos() {
+        when(tiendaRepository.actualizar(eq(1), any(), any(), any(), any(), isNull(), any(Instant.class))).thenReturn(1);
+        when(tiendaRepository.releer(1)).thenReturn(Optional.of(new Tienda(1, "Tienda Modificada", "Dirección", 3L)));
+
+        Tienda result = tiendaService.update(1, new Tienda(null, "Tienda Modificada", "Dirección"));
+
+        assertEquals(3L, result.getVersion());
+        verify(tiendaRepository, never()).findById(any());
+        verify(tiendaRepository, never()).save(any(Tienda.class));
+    }
+
+    @Test
+    void testActualizarCamposConservaLosOmitidos() {
+        indiceBusqueda.indexar(new Tienda(1, "Librería Austral", "Dirección Original", -33.4, -70.6, 4L));
+        when(tiendaRepository.actualizarCampos(eq(1), isNull(), eq("Dirección Nueva"), isNull(), isNull(), eq(4L),
+                any(Instant.class))).thenReturn(1);
+
+        Tienda result = tiendaService.actualizarCampos(1, new Tienda(null, null, "Dirección Nueva"), 4L);
+
+        assertEquals("Librería Austral", result.getNombre());
+        assertEquals("Dirección Nueva", result.getDireccion());
+        assertEquals(-33.4, result.getLatitud());
+        assertEquals(5L, result.getVersion());
+        assertEquals(1, tiendaService.buscar("nueva", 0, null).getTotalElements());
+        verify(tiendaRepository, never()).releer(any());
+    }
+
+    @Test
+    void testActualizarCamposConCopiaAtrasadaRelee() {
+        indiceBusqueda.indexar(new Tienda(1, "Librería Austral", "Dirección Original", 3L));
+        when(tiendaRepository.actualizarCampos(eq(1), any(), any(), any(), any(), eq(4L), any(Instant.class)))
+                .thenReturn(1);
+        when(tiendaRepository.releer(1)).thenReturn(Optional.of(new Tienda(1, "Otro Nombre", "Dirección Nueva", 5L)));
+
+        Tienda result = tiendaService.actualizarCampos(1, new Tienda(null, null, "Dirección Nueva"), 4L);
+
+        assertEquals("Otro Nombre", result.getNombre());
+        assertEquals(5L, result.getVersion());
+    }
+
+    @Test
+    void testActualizarCamposNoEncontrada() {
+        when(tiendaRepository.existsById(999)).thenReturn(false);
+
+        assertThrows(NoSuchElementException.class,
+                () -> tiendaService.actualizarCampos(999, new Tienda(null, "Tienda", null), 1L));
+    }
+
+    @Test
+    void testDeleteConVersionVigente() {
+        when(tiendaRepository.eliminar(eq(1), eq(3L), any(Instant.class))).thenReturn(1);
+        long ultima = cambios.ultimaSecuencia();
+
+        tiendaService.delete(1, 3L);
+
+        verify(tiendaRepository, never()).findById(any());
+        assertEquals(ultima + 1, cambios.ultimaSecuencia());
+    }
+
+    @Test
+    void testDeleteConVersionObsoleta() {
+        when(tiendaRepository.eliminar(eq(1), eq(2L), any(Instant.class))).thenReturn(0);
+        when(tiendaRepository.existsById(1)).thenReturn(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> tiendaService.delete(1, 2L));
+    }
+
+    @Test
+    void testVersionColeccionSaleDeLosDatos() {
+        Instant ultima = Instant.parse("2026-01-01T10:00:00.000001Z");
+        when(tiendaRepository.ultimaModificacion()).thenReturn(Optional.of(ultima));
+        String version = tiendaService.versionColeccion();
+        assertEquals(version, tiendaService.versionColeccion());
+
+        when(tiendaRepository.ultimaModificacion()).thenReturn(Optional.of(ultima.plusNanos(1000)));
+        assertNotEquals(version, tiendaService.versionColeccion());
+
+        when(tiendaRepository.ultimaModificacion()).thenReturn(Optional.empty());
+        assertEquals("0", tiendaService.versionColeccion());
+    }
+
+    @Test
+    void testVersionUsaLaCopiaEnCache() {
+        when(tiendaRepository.findById(1)).thenReturn(Optional.of(new Tienda(1, "Tienda", "Dirección", 5L)));
+        when(tiendaRepository.findVersionById(2)).thenReturn(Optional.of(3L));
+        tiendaService.findById(1);
+
+        assertEquals(5L, tiendaService.version(1));
+        assertEquals(3L, tiendaService.version(2));
+        verify(tiendaRepository, never()).findVersionById(1);
+    }
+
+    @Test
+    void testSavePublicaCambio() {
+        when(tiendaRepository.saveAndFlush(any(Tienda.class))).thenReturn(new Tienda(1, "Nueva Tienda", "Nueva Dirección"));
+        long ultima = cambios.ultimaSecuencia();
+
+        tiendaService.save(new Tienda(null, "Nueva Tienda", "Nueva Dirección"));
+
+        LoteCambios lote = cambios.leerDesde(ultima, 10);
+        assertEquals(1, lote.cambios().size());
+        assertEquals(CambioTienda.Tipo.CREADA, lote.cambios().get(0).tipo());
+        assertEquals(1, lote.cambios().get(0).idTienda());
+    }
+
+    @Test
+    void testImportarInformaCadaLote() {
+        when(tiendaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Tienda> nuevas = invocation.getArgument(0);
+            int id = 1;
+            for (Tienda tienda : nuevas) {
+                tienda.setIdTienda(id++);
+            }
+            return nuevas;
+        });
+        List<Tienda> tiendas = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            tiendas.add(new Tienda(null, i == 550 ? null : "Tienda " + i, "Dirección"));
+        }
+        List<ProgresoImportacion> avances = new ArrayList<>();
+
+        tiendaService.importar(tiendas.iterator(), avances::add);
+
+        assertEquals(2, avances.size());
+        assertEquals(500, avances.get(0).procesadas());
+        assertTrue(avances.get(0).errores().isEmpty());
+        assertEquals(600, avances.get(1).procesadas());
+        assertEquals(599, avances.get(1).creadas());
+        assertEquals(1, avances.get(1).errores().size());
+        assertEquals(550, avances.get(1).errores().get(0).indice());
+        verify(tiendaRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void testFindResumenesSinPaginaNoLimita() {
+        when(tiendaRepository.findResumenes(0, Limit.unlimited())).thenReturn(List.of(new TiendaResumen(1, "Tienda A")));
+
+        List<TiendaResumen> result = tiendaService.findResumenes(null, null, false);
+
+        assertEquals(1, result.size());
+        verify(tiendaRepository, never()).findAll();
+        verify(tiendaRepository, never()).findResumenesConDireccion(any(), any());
+    }
+
+    @Test
+    void testFindResumenesConDireccionPaginado() {
+        when(tiendaRepository.findResumenesConDireccion(10, Limit.of(2)))
+                .thenReturn(List.of(new TiendaResumen(11, "Tienda A", "Dirección A")));
+
+        List<TiendaResumen> result = tiendaService.findResumenes(10, 2, true);
+
+        assertEquals("Dirección A", result.get(0).direccion());
+    }
+
     @Test
     void testSave() {
         Tienda tiendaNueva = new Tienda(null, "Nueva Tienda", "Nueva Dirección");
         Tienda tiendaGuardada = new Tienda(1, "Nueva Tienda", "Nueva Dirección");
 
-        when(tiendaRepository.save(any(Tienda.class))).thenReturn(tiendaGuardada);
+        when(tiendaRepository.saveAndFlush(any(Tienda.class))).thenReturn(tiendaGuardada);
 
         Tienda result = tiendaService.save(tiendaNueva);
 
@@ -90,17 +393,95 @@ public class TiendaServiceTest {
         assertEquals(1, result.getIdTienda());
         assertEquals("Nueva Tienda", result.getNombre());
         assertEquals("Nueva Dirección", result.getDireccion());
-        verify(tiendaRepository, times(1)).save(tiendaNueva);
+        verify(tiendaRepository, times(1)).saveAndFlush(tiendaNueva);
+        verify(tiendaRepository, never()).findByNombreAndDireccion(any(), any());
+    }
+
+    @Test
+    void testSaveIndexaParaBusqueda() {
+        when(tiendaRepository.saveAndFlush(any(Tienda.class))).thenReturn(new Tienda(1, "Librería Austral", "Dirección"));
+
+        tiendaService.save(new Tienda(null, "Librería Austral", "Dirección"));
+
+        assertEquals(1, tiendaService.buscar("libreria", 0, null).getTotalElements());
+    }
+
+    @Test
+    void testSaveYDeleteMantienenIndiceGeografico() {
+        when(tiendaRepository.saveAndFlush(any(Tienda.class)))
+                .thenReturn(new Tienda(77, "Tienda Centro", "Dirección", -33.4378, -70.6504, 0L));
+        when(tiendaRepository.eliminar(eq(77), isNull(), any(Instant.class))).thenReturn(1);
+
+        tiendaService.save(new Tienda(null, "Tienda Centro", "Dirección", -33.4378, -70.6504, null));
+        assertEquals(List.of(77), tiendaService.cercanas(-33.4372, -70.6506, 1_000, null).stream()
+                .map(TiendaCercana::idTienda).toList());
+
+        tiendaService.delete(77);
+        assertTrue(tiendaService.cercanas(-33.4372, -70.6506, 1_000, null).isEmpty());
+    }
+
+    @Test
+    void testDeleteQuitaDelIndice() {
+        indiceBusqueda.indexar(new Tienda(1, "Librería Austral", "Dirección"));
+        when(tiendaRepository.eliminar(eq(1), isNull(), any(Instant.class))).thenReturn(1);
+
+        tiendaService.delete(1);
+
+        assertEquals(0, tiendaService.buscar("libreria", 0, null).getTotalElements());
+    }
+
+    @Test
+    void testSaveRechazaCoordenadasIncompletas() {
+        assertThrows(IllegalArgumentException.class,
+                () -> tiendaService.save(new Tienda(null, "Tienda", "Dirección", -33.4, null, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> tiendaService.actualizarCampos(1, new Tienda(null, null, null, null, -70.6, null), null));
+
+        verify(tiendaRepository, never()).saveAndFlush(any(Tienda.class));
+        verify(tiendaRepository, never()).actualizarCampos(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testCrearEnLoteRechazaCoordenadasFueraDeRango() {
+        List<ResultadoLote> resultados = tiendaService.crearEnLote(List.of(
+                new Tienda(null, "Tienda Polo", "Dirección", 91.0, 0.0, null)).iterator());
+
+        assertEquals(ResultadoLote.Estado.INVALIDA, resultados.get(0).estado());
+        verify(tiendaRepository, times(1)).saveAll(List.of());
+    }
+
+    @Test
+    void testDireccionEsObligatoria() {
+        assertThrows(IllegalArgumentException.class, () -> tiendaService.save(new Tienda(null, "Tienda", null)));
+        assertThrows(IllegalArgumentException.class, () -> tiendaService.update(1, new Tienda(null, "Tienda", " ")));
+        assertThrows(IllegalArgumentException.class,
+                () -> tiendaService.actualizarCampos(1, new Tienda(null, null, ""), null));
+        List<ResultadoLote> resultados = tiendaService.crearEnLote(List.of(new Tienda(null, "Tienda", null)).iterator());
+
+        assertEquals(ResultadoLote.Estado.INVALIDA, resultados.get(0).estado());
+        verify(tiendaRepository, never()).saveAndFlush(any(Tienda.class));
+        verify(tiendaRepository, never()).actualizar(any(), any(), any(), any(), any(), any(), any());
+        verify(tiendaRepository, never()).actualizarCampos(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testSaveDuplicada() {
+        Tienda tienda = new Tienda(null, "Tienda Duplicada", "Dirección");
+
+        when(tiendaRepository.saveAndFlush(any(Tienda.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_tienda_nombre_direccion"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> tiendaService.save(tienda));
+        verify(tiendaRepository, never()).findByNombreAndDireccion(any(), any());
     }
 
     @Test
     void testUpdate() {
-        Tienda tiendaExistente = new Tienda(1, "Tienda Original", "Dirección Original");
         Tienda tiendaActualizada = new Tienda(null, "Tienda Modificada", "Dirección Modificada");
-        Tienda tiendaGuardada = new Tienda(1, "Tienda Modificada", "Dirección Modificada");
 
-        when(tiendaRepository.findById(1)).thenReturn(Optional.of(tiendaExistente));
-        when(tiendaRepository.save(any(Tienda.class))).thenReturn(tiendaGuardada);
+        when(tiendaRepository.actualizar(eq(1), eq("Tienda Modificada"), eq("Dirección Modificada"), isNull(), isNull(),
+                isNull(), any(Instant.class))).thenReturn(1);
+        when(tiendaRepository.releer(1)).thenReturn(Optional.of(new Tienda(1, "Tienda Modificada", "Dirección Modificada", 1L)));
 
         Tienda result = tiendaService.update(1, tiendaActualizada);
 
@@ -108,50 +489,176 @@ public class TiendaServiceTest {
         assertEquals(1, result.getIdTienda());
         assertEquals("Tienda Modificada", result.getNombre());
         assertEquals("Dirección Modificada", result.getDireccion());
-        verify(tiendaRepository, times(1)).findById(1);
-        verify(tiendaRepository, times(1)).save(tiendaExistente);
+        verify(tiendaRepository, never()).findById(any());
+        verify(tiendaRepository, never()).save(any(Tienda.class));
     }
 
     @Test
     void testUpdateTiendaNoEncontrada() {
         Tienda tiendaActualizada = new Tienda(null, "Tienda Modificada", "Dirección Modificada");
         
-        when(tiendaRepository.findById(999)).thenReturn(Optional.empty());
-
         NoSuchElementException exception = assertThrows(
             NoSuchElementException.class,
             () -> tiendaService.update(999, tiendaActualizada)
         );
 
         assertEquals("Tienda no encontrada con ID: 999", exception.getMessage());
-        verify(tiendaRepository, times(1)).findById(999);
-        verify(tiendaRepository, never()).save(any(Tienda.class));
+        verify(tiendaRepository, never()).releer(any());
+    }
+
+    @Test
+    void testFindByIdLeeDeLaReplicaSalvoTrasEscribir() {
+        List<Boolean> soloLectura = new ArrayList<>();
+        when(tiendaRepository.findById(77)).thenAnswer(invocacion -> {
+            soloLectura.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return Optional.of(new Tienda(77, "Tienda", "Dirección", 1L));
+        });
+        when(tiendaRepository.eliminar(eq(77), isNull(), any(Instant.class))).thenReturn(1);
+
+        tiendaService.findById(77);
+        tiendaService.delete(77);
+        tiendaService.findById(77);
+
+        // La primera lectura puede ir a una réplica; la que sigue a la escritura va a la primaria
+        assertEquals(List.of(true, false), soloLectura);
     }
 
     @Test
     void testDelete() {
-        Tienda tienda = new Tienda(1, "Tienda a Eliminar", "Dirección");
-        
-        when(tiendaRepository.findById(1)).thenReturn(Optional.of(tienda));
-        doNothing().when(tiendaRepository).delete(tienda);
+        when(tiendaRepository.eliminar(eq(1), isNull(), any(Instant.class))).thenReturn(1);
 
         assertDoesNotThrow(() -> tiendaService.delete(1));
 
-        verify(tiendaRepository, times(1)).findById(1);
-        verify(tiendaRepository, times(1)).delete(tienda);
+        verify(tiendaRepository, never()).findById(any());
+        verify(tiendaRepository, never()).delete(any(Tienda.class));
     }
 
     @Test
     void testDeleteTiendaNoEncontrada() {
-        when(tiendaRepository.findById(999)).thenReturn(Optional.empty());
-
         NoSuchElementException exception = assertThrows(
             NoSuchElementException.class,
             () -> tiendaService.delete(999)
         );
 
         assertEquals("Tienda no encontrada con ID: 999", exception.getMessage());
-        verify(tiendaRepository, times(1)).findById(999);
         verify(tiendaRepository, never()).delete(any(Tienda.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCrearEnLote() {
+        Tienda existente = new Tienda(7, "Tienda A", "Dirección A");
+        when(tiendaRepository.findByNombreIn(any())).thenReturn(List.of(existente));
+        when(tiendaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Tienda> nuevas = invocation.getArgument(0);
+            int id = 100;
+            for (Tienda nueva : nuevas) {
+                nueva.setIdTienda(id++);
+            }
+            return nuevas;
+        });
+
+        List<ResultadoLote> resultados = tiendaService.crearEnLote(List.of(
+                new Tienda(null, "Tienda A", "Dirección A"),
+                new Tienda(null, "Tienda B", "Dirección B"),
+                new Tienda(null, "Tienda B", "Dirección B"),
+                new Tienda(null, " ", "Dirección C")).iterator());
+
+        assertEquals(4, resultados.size());
+        assertEquals(ResultadoLote.Estado.DUPLICADA, resultados.get(0).estado());
+        assertEquals(ResultadoLote.Estado.CREADA, resultados.get(1).estado());
+        assertEquals(100, resultados.get(1).idTienda());
+        assertEquals(ResultadoLote.Estado.DUPLICADA, resultados.get(2).estado());
+        assertEquals(ResultadoLote.Estado.INVALIDA, resultados.get(3).estado());
+        verify(tiendaRepository, times(1)).findByNombreIn(any());
+        verify(tiendaRepository, never()).findByNombreAndDireccion(any(), any());
+        verify(tiendaRepository, never()).save(any(Tienda.class));
+    }
+
+    @Test
+    void testCrearEnLoteConsultaUnaVezPorLote() {
+        when(tiendaRepository.findByNombreIn(any())).thenReturn(List.of());
+        when(tiendaRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Tienda> tiendas = new ArrayList<>();
+        for (int i = 0; i < TiendaService.TAMANO_LOTE + 1; i++) {
+            tiendas.add(new Tienda(null, "Tienda " + i, "Dirección " + i));
+        }
+
+        List<ResultadoLote> resultados = tiendaService.crearEnLote(tiendas.iterator());
+
+        assertEquals(TiendaService.TAMANO_LOTE + 1, resultados.size());
+        assertEquals(TiendaService.TAMANO_LOTE, resultados.get(TiendaService.TAMANO_LOTE).indice());
+        verify(tiendaRepository, times(2)).findByNombreIn(any());
+        verify(tiendaRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void testActualizarEnLote() {
+        Tienda existente = new Tienda(1, "Tienda Original", "Dirección Original");
+        when(tiendaRepository.findAllById(any())).thenReturn(List.of(existente));
+
+        List<ResultadoLote> resultados = tiendaService.actualizarEnLote(List.of(
+                new Tienda(1, "Tienda Modificada", "Dirección Modificada"),
+                new Tienda(999, "Tienda", "Dirección")).iterator());
+
+        assertEquals(ResultadoLote.Estado.ACTUALIZADA, resultados.get(0).estado());
+        assertEquals(ResultadoLote.Estado.NO_ENCONTRADA, resultados.get(1).estado());
+        assertEquals("Tienda Modificada", existente.getNombre());
+        verify(tiendaRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void testCrearEnLoteAislaLaViolacionDeUnElemento() {
+        when(tiendaRepository.findByNombreIn(any())).thenReturn(List.of());
+        when(tiendaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Tienda> nuevas = invocation.getArgument(0);
+            if (nuevas.stream().anyMatch(t -> t.getNombre().equals("Tienda B"))) {
+                throw new DataIntegrityViolationException("uk_tienda_nombre_direccion",
+                        new SQLException("duplicate key", "23505"));
+            }
+            if (nuevas.stream().anyMatch(t -> t.getNombre().equals("Tienda C"))) {
+                throw new DataIntegrityViolationException("ck_tienda_latitud", new SQLException("check", "23514"));
+            }
+            nuevas.forEach(t -> t.setIdTienda(100));
+            return nuevas;
+        });
+
+        List<ResultadoLote> resultados = tiendaService.crearEnLote(List.of(
+                new Tienda(null, "Tienda A", "Dirección A"),
+                new Tienda(null, "Tienda B", "Dirección B"),
+                new Tienda(null, "Tienda C", "Dirección C")).iterator());
+
+        assertEquals(3, resultados.size());
+        assertEquals(ResultadoLote.Estado.CREADA, resultados.get(0).estado());
+        assertEquals(ResultadoLote.Estado.DUPLICADA, resultados.get(1).estado());
+        assertEquals(1, resultados.get(1).indice());
+        assertEquals(ResultadoLote.Estado.INVALIDA, resultados.get(2).estado());
+    }
+
+    @Test
+    void testActualizarEnLoteSinNombreEsInvalida() {
+        Tienda existente = new Tienda(1, "Tienda Original", "Dirección Original");
+        when(tiendaRepository.findAllById(any())).thenReturn(List.of(existente));
+
+        List<ResultadoLote> resultados = tiendaService.actualizarEnLote(List.of(
+                new Tienda(1, null, "Dirección Modificada")).iterator());
+
+        assertEquals(ResultadoLote.Estado.INVALIDA, resultados.get(0).estado());
+        assertEquals("Tienda Original", existente.getNombre());
+    }
+
+    @Test
+    void testEliminarEnLote() {
+        Tienda primera = new Tienda(1, "Tienda A", "Dirección A");
+        Tienda segunda = new Tienda(2, "Tienda B", "Dirección B");
+        when(tiendaRepository.findAllById(Set.of(1, 2, 999))).thenReturn(List.of(primera, segunda));
+
+        List<ResultadoLote> resultados = tiendaService.eliminarEnLote(List.of(1, 2, 999).iterator());
+
+        assertEquals(ResultadoLote.Estado.ELIMINADA, resultados.get(0).estado());
+        assertEquals(ResultadoLote.Estado.ELIMINADA, resultados.get(1).estado());
+        assertEquals(ResultadoLote.Estado.NO_ENCONTRADA, resultados.get(2).estado());
+        assertNotNull(primera.getEliminadaEn());
+        assertNotNull(segunda.getEliminadaEn());
+    }
+}